@@ -0,0 +1,65 @@
+#!/bin/sh
+# Starts ChatRPG from a class-data-sharing (AppCDS) archive recorded during a scripted training run.
+#
+#   scripts/fast-start.sh [registry file]   compile if needed, record the archive if needed, then play
+#   scripts/fast-start.sh --benchmark       compare the time to first prompt with and without the archive
+#
+# The archive is recorded again whenever a source file is newer than it. Class-data sharing only archives
+# classes loaded from JAR files, so the game is packaged before training.
+set -e
+
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+CLASSES="$ROOT/out/fast-start/classes"
+JAR="$ROOT/out/fast-start/chatrpg.jar"
+ARCHIVE="$ROOT/out/fast-start/chatrpg.jsa"
+CLASS_LIST="$ROOT/out/fast-start/chatrpg.classlist"
+
+# Explores once and runs away, checks stats, browses both shop menus and recruits a companion, so the
+# archive covers the classes a real session loads.
+TRAINING_INPUT='trainer
+1
+2
+2
+4
+1
+4
+4
+2
+4
+3
+1
+5
+'
+
+JAVA_MAJOR=$(java -version 2>&1 | sed -n 's/.*version "\([0-9]*\).*/\1/p' | head -n 1)
+
+stale() {
+    [ ! -f "$1" ] || [ -n "$(find "$ROOT/src" -name '*.java' -newer "$1")" ]
+}
+
+# Inline string concatenation avoids bootstrapping method handles the first time each message is built.
+if stale "$JAR"; then
+    rm -rf "$CLASSES"
+    mkdir -p "$CLASSES"
+    javac -XDstringConcat=inline -d "$CLASSES" $(find "$ROOT/src" -name '*.java' ! -name '*Test.java')
+    jar --create --file "$JAR" --main-class ChatRPG -C "$CLASSES" .
+fi
+
+if stale "$ARCHIVE"; then
+    rm -f "$ARCHIVE"
+    if [ "$JAVA_MAJOR" -ge 13 ]; then
+        printf '%s' "$TRAINING_INPUT" | java -XX:ArchiveClassesAtExit="$ARCHIVE" -cp "$JAR" ChatRPG > /dev/null
+    else
+        printf '%s' "$TRAINING_INPUT" | java -Xshare:off -XX:DumpLoadedClassList="$CLASS_LIST" -cp "$JAR" ChatRPG > /dev/null
+        java -Xshare:dump -XX:SharedClassListFile="$CLASS_LIST" -XX:SharedArchiveFile="$ARCHIVE" -cp "$JAR" > /dev/null
+    fi
+fi
+
+if [ "$1" = "--benchmark" ]; then
+    java -cp "$JAR" StartupBenchmark -Xshare:auto
+    java -cp "$JAR" StartupBenchmark -XX:SharedArchiveFile="$ARCHIVE" -XX:TieredStopAtLevel=1
+    exit 0
+fi
+
+# A console session never runs long enough to repay the optimizing compiler's warmup.
+exec java -XX:SharedArchiveFile="$ARCHIVE" -XX:TieredStopAtLevel=1 -cp "$JAR" ChatRPG "$@"
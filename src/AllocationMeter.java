@@ -0,0 +1,66 @@
+import java.lang.management.ManagementFactory;
+import java.util.function.IntConsumer;
+
+/**
+ * Measures the memory the calling thread allocates while running a workload, for tests that check a hot path
+ * allocates nothing once the compiler has warmed it up.
+ */
+final class AllocationMeter {
+    private static final int MEASUREMENTS = 5;
+
+    private AllocationMeter() {
+    }
+
+    /**
+     * Checks whether the JVM can count the bytes each thread allocates, and turns the counting on if so.
+     *
+     * @return True if allocations can be measured; otherwise, false.
+     */
+    static boolean isSupported() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+            return false;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            return false;
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+        return true;
+    }
+
+    /**
+     * Runs the warm-up, then measures the workload a few times and returns the fewest bytes any one run
+     * allocated, not counting the cost of measuring. The compiler may still be settling after the warm-up, so
+     * the best of the measurements counts.
+     *
+     * @param warmUp   Runs the workload enough times for the compiler to optimize it.
+     * @param workload Runs the workload once, given the number of the measurement, starting from 0.
+     * @return The fewest bytes allocated by one run of the workload.
+     */
+    static long fewestBytes(Runnable warmUp, IntConsumer workload) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+
+        warmUp.run();
+        long calibrationStart = threads.getThreadAllocatedBytes(thread);
+        long calibrationEnd = threads.getThreadAllocatedBytes(thread);
+        long measurementCost = calibrationEnd - calibrationStart;
+
+        long fewestBytes = Long.MAX_VALUE;
+        for (int m = 0; m < MEASUREMENTS; m++) {
+            long before = threads.getThreadAllocatedBytes(thread);
+            workload.accept(m);
+            fewestBytes = Math.min(fewestBytes, threads.getThreadAllocatedBytes(thread) - before - measurementCost);
+        }
+        return fewestBytes;
+    }
+
+    /**
+     * Returns the number of times fewestBytes measures a workload.
+     *
+     * @return The number of measurements.
+     */
+    static int getMeasurements() {
+        return MEASUREMENTS;
+    }
+}
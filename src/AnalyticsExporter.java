@@ -0,0 +1,712 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Exports every game event to a file in compressed, columnar blocks for offline analysis.
+ *
+ * Events are appended to a block of column arrays: the time, the type, the player, room and subject names
+ * as codes into a dictionary kept per block, and the damage, health and gold as ints. A full block is
+ * handed to a writer thread, which encodes each column in turn as variable-length numbers, compresses the
+ * block and appends it to the file. Because similar values sit next to each other, blocks compress well,
+ * and because every block carries its own dictionary, a scan can decode blocks independently.
+ *
+ * Every thread that reports events, such as each event loop of a server, fills a block of its own, so
+ * threads never wait on each other to report an event. The writer merges their blocks into the file in the
+ * order they are handed to it; events are in order within a block, but blocks of different threads may
+ * overlap in time.
+ *
+ * Memory is bounded by a fixed pool of blocks. A thread takes a block from the pool for its next event and
+ * gives it up once the block is full or flushed, so the pool should hold more blocks than there are threads
+ * reporting events. No thread ever waits for the writer: if every block is taken, events are dropped and
+ * counted instead.
+ *
+ * The file starts with a magic number followed by blocks, each with its row count, its encoded length, its
+ * compressed length and its compressed bytes. Reopening a file appends more blocks to it, after cutting off
+ * a last block left incomplete by a crash so that the new blocks can be read.
+ */
+class AnalyticsExporter implements GameEventListener, AutoCloseable {
+    static final int MAGIC = 0x43525041;
+    static final int DEFAULT_BLOCK_ROWS = 4096;
+    static final int DEFAULT_BLOCKS = 16;
+    private static final int BLOCK_HEADER = 12;
+
+    private static final GameEvent.Type[] TYPES = GameEvent.Type.values();
+
+    private final ArrayBlockingQueue<Block> free;
+    private final ArrayBlockingQueue<Block> full;
+    private final ConcurrentLinkedQueue<Buffer> buffers = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<Buffer> buffer = ThreadLocal.withInitial(this::newBuffer);
+    private final Block closing = new Block(0);
+    private final DataOutputStream out;
+    private final Thread writer;
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean closed;
+    private volatile IOException error;
+
+    /**
+     * The block one thread is filling. Only that thread adds to it, so its lock is only contended while the
+     * block is being flushed or the exporter closed.
+     */
+    private static final class Buffer {
+        private Block current;
+    }
+
+    /**
+     * Constructs a new AnalyticsExporter with 16 blocks of 4096 events.
+     *
+     * @param file The file to append the events to.
+     * @throws IOException If the file cannot be opened.
+     */
+    public AnalyticsExporter(Path file) throws IOException {
+        this(file, DEFAULT_BLOCK_ROWS, DEFAULT_BLOCKS);
+    }
+
+    /**
+     * Constructs a new AnalyticsExporter.
+     *
+     * @param file      The file to append the events to.
+     * @param blockRows The number of events in a block.
+     * @param blocks    The number of blocks that may be filled or waiting to be written at once.
+     * @throws IOException If the file cannot be opened or is not an analytics file.
+     */
+    public AnalyticsExporter(Path file, int blockRows, int blocks) throws IOException {
+        if (blockRows <= 0 || blocks < 2) {
+            throw new IllegalArgumentException("The exporter needs at least two blocks of at least one event.");
+        }
+        boolean empty = !Files.exists(file) || truncateIncompleteBlock(file) == 0;
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file.toFile(), true)));
+        if (empty) {
+            out.writeInt(MAGIC);
+            out.flush();
+        }
+        this.free = new ArrayBlockingQueue<>(blocks);
+        this.full = new ArrayBlockingQueue<>(blocks + 1);
+        for (int i = 0; i < blocks; i++) {
+            free.add(new Block(blockRows));
+        }
+        this.writer = new Thread(this::writeBlocks, "analytics-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Appends an event to the calling thread's block, handing the block to the writer once it is full.
+     *
+     * @param event What happened.
+     */
+    @Override
+    public void onEvent(GameEvent event) {
+        Buffer own = buffer.get();
+        synchronized (own) {
+            if (closed) {
+                dropped.incrementAndGet();
+                return;
+            }
+            if (own.current == null) {
+                own.current = free.poll();
+                if (own.current == null) {
+                    // The writer is behind and every block is taken; drop the event rather than wait.
+                    dropped.incrementAndGet();
+                    return;
+                }
+            }
+            own.current.add(System.currentTimeMillis(), event);
+            if (own.current.size == own.current.capacity()) {
+                handOff(own);
+            }
+        }
+    }
+
+    /**
+     * Hands every thread's events so far to the writer without waiting for them to be written.
+     */
+    public void flush() {
+        for (Buffer each : buffers) {
+            synchronized (each) {
+                if (!closed && each.current != null && each.current.size > 0) {
+                    handOff(each);
+                }
+            }
+        }
+    }
+
+    private Buffer newBuffer() {
+        Buffer created = new Buffer();
+        buffers.add(created);
+        return created;
+    }
+
+    private void handOff(Buffer from) {
+        full.add(from.current);
+        from.current = null;
+    }
+
+    /**
+     * Returns the number of events written to the file so far.
+     *
+     * @return The number of events written.
+     */
+    public long getWrittenEvents() {
+        return written.get();
+    }
+
+    /**
+     * Returns the number of events dropped because the writer fell behind or failed.
+     *
+     * @return The number of events dropped.
+     */
+    public long getDroppedEvents() {
+        return dropped.get();
+    }
+
+    /**
+     * Writes the remaining events, waits for the writer to finish and closes the file.
+     *
+     * @throws IOException If the file could not be written.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        // A thread that takes its buffer's lock after this point sees the exporter closed.
+        for (Buffer each : buffers) {
+            synchronized (each) {
+                if (each.current != null && each.current.size > 0) {
+                    handOff(each);
+                }
+            }
+        }
+        full.add(closing);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing the analytics.", e);
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            if (error == null) {
+                error = e;
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    private void writeBlocks() {
+        Deflater deflater = new Deflater();
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        byte[] compressed = new byte[0];
+        while (true) {
+            Block block;
+            try {
+                block = full.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (block == closing) {
+                deflater.end();
+                return;
+            }
+            if (error != null) {
+                dropped.addAndGet(block.size);
+            } else {
+                try {
+                    encoded.reset();
+                    block.encode(encoded);
+                    byte[] bytes = encoded.toByteArray();
+                    deflater.reset();
+                    deflater.setInput(bytes);
+                    deflater.finish();
+                    if (compressed.length < bytes.length + 64) {
+                        compressed = new byte[bytes.length + bytes.length / 8 + 64];
+                    }
+                    int length = 0;
+                    while (!deflater.finished()) {
+                        if (length == compressed.length) {
+                            compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                        }
+                        length += deflater.deflate(compressed, length, compressed.length - length);
+                    }
+                    out.writeInt(block.size);
+                    out.writeInt(bytes.length);
+                    out.writeInt(length);
+                    out.write(compressed, 0, length);
+                    out.flush();
+                    written.addAndGet(block.size);
+                } catch (IOException e) {
+                    error = e;
+                    dropped.addAndGet(block.size);
+                }
+            }
+            block.clear();
+            free.offer(block);
+        }
+    }
+
+    /**
+     * Cuts off a block that a crash left incomplete at the end of a file, walking the block headers without
+     * reading the blocks themselves. A file too short to hold its magic number is emptied.
+     *
+     * @return The length of the file afterwards.
+     */
+    static long truncateIncompleteBlock(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER);
+            if (size >= 4) {
+                header.limit(4);
+                readFully(channel, header, 0);
+                if (header.getInt(0) != MAGIC) {
+                    throw new IOException(file + " is not an analytics file.");
+                }
+            }
+            long end = size < 4 ? 0 : 4;
+            while (end + BLOCK_HEADER <= size) {
+                header.clear();
+                readFully(channel, header, end);
+                int rows = header.getInt(0);
+                int compressedLength = header.getInt(8);
+                if (rows < 0 || header.getInt(4) < 0 || compressedLength < 0) {
+                    throw new IOException("A block of " + file + " at byte " + end + " is corrupt.");
+                }
+                if (end + BLOCK_HEADER + compressedLength > size) {
+                    break;
+                }
+                end += BLOCK_HEADER + compressedLength;
+            }
+            if (end < size) {
+                channel.truncate(end);
+            }
+            return end;
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    /**
+     * Reads every block of an analytics file in order.
+     *
+     * @param file     The file to read.
+     * @param consumer Called with each decoded block. The block is reused for the next one.
+     * @throws IOException If the file cannot be read or is not an analytics file. A block at the end of the
+     *                     file cut short by a crash ends the scan without an error; reopening the file for
+     *                     export removes it.
+     */
+    public static void scan(Path file, Consumer<Block> consumer) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(file + " is not an analytics file.");
+            }
+            Inflater inflater = new Inflater();
+            Block block = new Block(0);
+            byte[] compressed = new byte[0];
+            byte[] encoded = new byte[0];
+            try {
+                while (true) {
+                    int rows;
+                    int encodedLength;
+                    int compressedLength;
+                    try {
+                        rows = readHeader(in);
+                        if (rows < 0) {
+                            return;
+                        }
+                        encodedLength = in.readInt();
+                        compressedLength = in.readInt();
+                        if (compressed.length < compressedLength) {
+                            compressed = new byte[compressedLength];
+                        }
+                        in.readFully(compressed, 0, compressedLength);
+                    } catch (EOFException e) {
+                        return;
+                    }
+                    if (encoded.length < encodedLength) {
+                        encoded = new byte[encodedLength];
+                    }
+                    inflater.reset();
+                    inflater.setInput(compressed, 0, compressedLength);
+                    try {
+                        if (inflater.inflate(encoded, 0, encodedLength) != encodedLength) {
+                            throw new IOException("A block of " + file + " is shorter than its header says.");
+                        }
+                    } catch (DataFormatException e) {
+                        throw new IOException("A block of " + file + " is corrupt.", e);
+                    }
+                    block.decode(rows, encoded);
+                    consumer.accept(block);
+                }
+            } finally {
+                inflater.end();
+            }
+        }
+    }
+
+    private static int readHeader(InputStream in) throws IOException {
+        int first = in.read();
+        if (first < 0) {
+            return -1;
+        }
+        int rest = 0;
+        for (int i = 0; i < 3; i++) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            rest = rest << 8 | b;
+        }
+        return first << 24 | rest;
+    }
+
+    /**
+     * A block of events stored column by column.
+     */
+    static class Block {
+        private long[] time;
+        private byte[] type;
+        private int[] player;
+        private int[] room;
+        private int[] subject;
+        private int[] damage;
+        private int[] health;
+        private int[] gold;
+        private final List<String> names = new ArrayList<>();
+        private final Map<String, Integer> codes = new HashMap<>();
+        private int size;
+
+        Block(int capacity) {
+            allocate(capacity);
+        }
+
+        private void allocate(int capacity) {
+            time = new long[capacity];
+            type = new byte[capacity];
+            player = new int[capacity];
+            room = new int[capacity];
+            subject = new int[capacity];
+            damage = new int[capacity];
+            health = new int[capacity];
+            gold = new int[capacity];
+        }
+
+        int capacity() {
+            return time.length;
+        }
+
+        void add(long millis, GameEvent event) {
+            time[size] = millis;
+            type[size] = (byte) event.getType().ordinal();
+            player[size] = code(event.getPlayer());
+            room[size] = code(event.getRoom());
+            subject[size] = code(event.getSubject());
+            damage[size] = event.getDamage();
+            health[size] = event.getHealth();
+            gold[size] = event.getGold();
+            size++;
+        }
+
+        private int code(String name) {
+            if (name == null) {
+                return -1;
+            }
+            Integer code = codes.get(name);
+            if (code == null) {
+                code = names.size();
+                names.add(name);
+                codes.put(name, code);
+            }
+            return code;
+        }
+
+        void clear() {
+            size = 0;
+            names.clear();
+            codes.clear();
+        }
+
+        /**
+         * Writes the dictionary, then each column in turn. Times are written as differences from the
+         * previous event, and names as their code plus one so that a missing name is 0.
+         */
+        void encode(ByteArrayOutputStream out) {
+            writeVarint(out, names.size());
+            for (String name : names) {
+                byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                writeVarint(out, bytes.length);
+                out.write(bytes, 0, bytes.length);
+            }
+            long previous = 0;
+            for (int i = 0; i < size; i++) {
+                writeVarlong(out, time[i] - previous);
+                previous = time[i];
+            }
+            out.write(type, 0, size);
+            writeCodes(out, player);
+            writeCodes(out, room);
+            writeCodes(out, subject);
+            writeInts(out, damage);
+            writeInts(out, health);
+            writeInts(out, gold);
+        }
+
+        void decode(int rows, byte[] encoded) throws IOException {
+            clear();
+            if (capacity() < rows) {
+                allocate(rows);
+            }
+            size = rows;
+            int[] position = {0};
+            int nameCount = (int) readVarlong(encoded, position);
+            for (int i = 0; i < nameCount; i++) {
+                int length = (int) readVarlong(encoded, position);
+                names.add(new String(encoded, position[0], length, StandardCharsets.UTF_8));
+                position[0] += length;
+            }
+            long previous = 0;
+            for (int i = 0; i < rows; i++) {
+                previous += unzigzag(readVarlong(encoded, position));
+                time[i] = previous;
+            }
+            System.arraycopy(encoded, position[0], type, 0, rows);
+            position[0] += rows;
+            readCodes(encoded, position, player, rows);
+            readCodes(encoded, position, room, rows);
+            readCodes(encoded, position, subject, rows);
+            readInts(encoded, position, damage, rows);
+            readInts(encoded, position, health, rows);
+            readInts(encoded, position, gold, rows);
+            for (int i = 0; i < rows; i++) {
+                if ((type[i] & 0xFF) >= TYPES.length) {
+                    throw new IOException("A block contains an unknown event type " + type[i] + ".");
+                }
+            }
+        }
+
+        private void writeCodes(ByteArrayOutputStream out, int[] column) {
+            for (int i = 0; i < size; i++) {
+                writeVarint(out, column[i] + 1);
+            }
+        }
+
+        private void writeInts(ByteArrayOutputStream out, int[] column) {
+            for (int i = 0; i < size; i++) {
+                writeVarlong(out, column[i]);
+            }
+        }
+
+        private static void readCodes(byte[] encoded, int[] position, int[] column, int rows) {
+            for (int i = 0; i < rows; i++) {
+                column[i] = (int) readVarlong(encoded, position) - 1;
+            }
+        }
+
+        private static void readInts(byte[] encoded, int[] position, int[] column, int rows) {
+            for (int i = 0; i < rows; i++) {
+                column[i] = (int) unzigzag(readVarlong(encoded, position));
+            }
+        }
+
+        /**
+         * Returns the number of events in the block.
+         *
+         * @return The number of events.
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Returns when an event happened.
+         *
+         * @param row The index of the event in the block.
+         * @return The time in milliseconds since the epoch.
+         */
+        public long getTime(int row) {
+            return time[row];
+        }
+
+        /**
+         * Returns what happened.
+         *
+         * @param row The index of the event in the block.
+         * @return The type of the event.
+         */
+        public GameEvent.Type getType(int row) {
+            return TYPES[type[row]];
+        }
+
+        /**
+         * Returns the name of the player.
+         *
+         * @param row The index of the event in the block.
+         * @return The player's name.
+         */
+        public String getPlayer(int row) {
+            return name(player[row]);
+        }
+
+        /**
+         * Returns the room the player was in.
+         *
+         * @param row The index of the event in the block.
+         * @return The room name, or null if it does not apply.
+         */
+        public String getRoom(int row) {
+            return name(room[row]);
+        }
+
+        /**
+         * Returns the monster, companion or item involved.
+         *
+         * @param row The index of the event in the block.
+         * @return The subject's name, or null if none.
+         */
+        public String getSubject(int row) {
+            return name(subject[row]);
+        }
+
+        /**
+         * Returns the damage dealt or taken.
+         *
+         * @param row The index of the event in the block.
+         * @return The damage.
+         */
+        public int getDamage(int row) {
+            return damage[row];
+        }
+
+        /**
+         * Returns the player's health after the event.
+         *
+         * @param row The index of the event in the block.
+         * @return The player's health.
+         */
+        public int getHealth(int row) {
+            return health[row];
+        }
+
+        /**
+         * Returns the gold gained or spent.
+         *
+         * @param row The index of the event in the block.
+         * @return The gold.
+         */
+        public int getGold(int row) {
+            return gold[row];
+        }
+
+        private String name(int code) {
+            return code < 0 ? null : names.get(code);
+        }
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        writeUnsigned(out, value & 0xFFFFFFFFL);
+    }
+
+    private static void writeVarlong(ByteArrayOutputStream out, long value) {
+        writeUnsigned(out, value << 1 ^ value >> 63);
+    }
+
+    private static void writeUnsigned(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarlong(byte[] encoded, int[] position) {
+        long value = 0;
+        int shift = 0;
+        while (true) {
+            byte b = encoded[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+
+    private static long unzigzag(long value) {
+        return value >>> 1 ^ -(value & 1);
+    }
+
+    /**
+     * Prints a summary of an analytics file: how often each event happened, and who won the battles
+     * against each monster.
+     *
+     * @param args The path of the file.
+     * @throws IOException If the file cannot be read.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: AnalyticsExporter <file>");
+            return;
+        }
+        long start = System.nanoTime();
+        Map<GameEvent.Type, long[]> counts = new EnumMap<>(GameEvent.Type.class);
+        Map<String, long[]> battles = new TreeMap<>();
+        scan(Paths.get(args[0]), block -> {
+            for (int i = 0; i < block.size(); i++) {
+                GameEvent.Type type = block.getType(i);
+                long[] count = counts.computeIfAbsent(type, t -> new long[2]);
+                count[0]++;
+                count[1] += type == GameEvent.Type.ATTACK || type == GameEvent.Type.BLOCKED
+                        ? block.getDamage(i) : block.getGold(i);
+                if (type == GameEvent.Type.VICTORY || type == GameEvent.Type.DEFEAT) {
+                    battles.computeIfAbsent(block.getSubject(i), s -> new long[2])[type == GameEvent.Type.VICTORY ? 0 : 1]++;
+                }
+            }
+        });
+        for (Map.Entry<GameEvent.Type, long[]> entry : counts.entrySet()) {
+            System.out.println(entry.getKey() + ": " + entry.getValue()[0] + " events, total " + entry.getValue()[1]);
+        }
+        for (Map.Entry<String, long[]> entry : battles.entrySet()) {
+            System.out.println(entry.getKey() + ": " + entry.getValue()[0] + " victories, " + entry.getValue()[1] + " defeats");
+        }
+        System.out.printf("Scanned in %d ms.%n", (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -0,0 +1,204 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AnalyticsExporterTest {
+    private static final String[] MONSTERS = {"Goblin", "Orc", "Dragon", null};
+    private static final String[] ROOMS = {"Cave", "Forest", "Dungeon"};
+    private static final GameEvent.Type[] TYPES = GameEvent.Type.values();
+
+    private static GameEvent event(int i) {
+        return new GameEvent(TYPES[i % TYPES.length], "Player " + (i % 7), ROOMS[i % ROOMS.length],
+                MONSTERS[i % MONSTERS.length], i % 50, 100 - i % 200, i % 3 == 0 ? -i : i);
+    }
+
+    private static List<GameEvent> readAll(Path file) throws IOException {
+        List<GameEvent> events = new ArrayList<>();
+        AnalyticsExporter.scan(file, block -> {
+            for (int i = 0; i < block.size(); i++) {
+                events.add(new GameEvent(block.getType(i), block.getPlayer(i), block.getRoom(i), block.getSubject(i),
+                        block.getDamage(i), block.getHealth(i), block.getGold(i)));
+            }
+        });
+        return events;
+    }
+
+    @Test
+    public void testEventsSurviveTheRoundTrip() throws IOException {
+        Path file = Files.createTempFile("analytics", ".bin");
+        try {
+            long before = System.currentTimeMillis();
+            AnalyticsExporter exporter = new AnalyticsExporter(file, 1000, 64);
+            for (int i = 0; i < 10_500; i++) {
+                exporter.onEvent(event(i));
+            }
+            exporter.onEvent(new GameEvent(GameEvent.Type.EXPLORE, "Zo\u00eb", null, null, 0, Integer.MAX_VALUE, Integer.MIN_VALUE));
+            exporter.close();
+            assertEquals(10_501, exporter.getWrittenEvents());
+            assertEquals(0, exporter.getDroppedEvents());
+
+            List<GameEvent> events = readAll(file);
+            assertEquals(10_501, events.size());
+            for (int i = 0; i < 10_500; i++) {
+                assertEquals(event(i).toString(), events.get(i).toString());
+            }
+            assertEquals("EXPLORE(Zo\u00eb, null, null, damage=0, health=" + Integer.MAX_VALUE + ", gold=" + Integer.MIN_VALUE + ")",
+                    events.get(10_500).toString());
+
+            long after = System.currentTimeMillis();
+            AnalyticsExporter.scan(file, block -> {
+                for (int i = 0; i < block.size(); i++) {
+                    assertTrue(block.getTime(i) >= before && block.getTime(i) <= after);
+                }
+            });
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testReopenedFileIsAppended() throws IOException {
+        Path file = Files.createTempFile("analytics", ".bin");
+        try {
+            try (AnalyticsExporter exporter = new AnalyticsExporter(file)) {
+                exporter.onEvent(event(1));
+            }
+            try (AnalyticsExporter exporter = new AnalyticsExporter(file)) {
+                exporter.onEvent(event(2));
+                exporter.flush();
+                exporter.onEvent(event(3));
+            }
+            List<GameEvent> events = readAll(file);
+            assertEquals(3, events.size());
+            assertEquals(event(3).toString(), events.get(2).toString());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testReopeningAfterCrashCutsOffIncompleteBlock() throws IOException {
+        Path file = Files.createTempFile("analytics", ".bin");
+        try {
+            try (AnalyticsExporter exporter = new AnalyticsExporter(file, 4096, 4)) {
+                for (int i = 0; i < 8192; i++) {
+                    exporter.onEvent(event(i));
+                }
+            }
+            long complete = Files.size(file);
+            try (AnalyticsExporter exporter = new AnalyticsExporter(file, 4096, 4)) {
+                for (int i = 0; i < 4096; i++) {
+                    exporter.onEvent(event(i));
+                }
+            }
+            // A crash while writing the third block leaves only part of it behind.
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(complete + (Files.size(file) - complete) / 2);
+            }
+            assertEquals(8192, readAll(file).size());
+
+            try (AnalyticsExporter exporter = new AnalyticsExporter(file, 4096, 4)) {
+                for (int i = 0; i < 10; i++) {
+                    exporter.onEvent(event(i));
+                }
+            }
+            List<GameEvent> events = readAll(file);
+            assertEquals(8202, events.size());
+            assertEquals(event(9).toString(), events.get(8201).toString());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testFullPoolDropsInsteadOfBlocking() throws IOException {
+        Path file = Files.createTempFile("analytics", ".bin");
+        try {
+            AnalyticsExporter exporter = new AnalyticsExporter(file, 1, 2);
+            for (int i = 0; i < 100_000; i++) {
+                exporter.onEvent(event(i));
+            }
+            exporter.close();
+            assertEquals(100_000, exporter.getWrittenEvents() + exporter.getDroppedEvents());
+            assertEquals(exporter.getWrittenEvents(), readAll(file).size());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testThreadsFillTheirOwnBlocks() throws Exception {
+        Path file = Files.createTempFile("analytics", ".bin");
+        try {
+            int threads = 4;
+            int eventsPerThread = 25_000;
+            AnalyticsExporter exporter = new AnalyticsExporter(file, 1000, 64);
+            List<Thread> loops = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                String player = "Loop " + t;
+                loops.add(new Thread(() -> {
+                    for (int i = 0; i < eventsPerThread; i++) {
+                        exporter.onEvent(new GameEvent(GameEvent.Type.ATTACK, player, "Cave", "Goblin", i, 100, 0));
+                    }
+                }));
+            }
+            for (Thread loop : loops) {
+                loop.start();
+            }
+            for (Thread loop : loops) {
+                loop.join();
+            }
+            exporter.close();
+            assertEquals(threads * eventsPerThread, exporter.getWrittenEvents() + exporter.getDroppedEvents());
+
+            // Blocks of different threads are interleaved, but each thread's events keep their order.
+            Map<String, Integer> next = new HashMap<>();
+            for (GameEvent event : readAll(file)) {
+                int expected = next.getOrDefault(event.getPlayer(), 0);
+                assertTrue(event.getDamage() >= expected, event + " arrived out of order.");
+                next.put(event.getPlayer(), event.getDamage() + 1);
+            }
+            assertEquals(exporter.getWrittenEvents(), readAll(file).size());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testRepetitiveEventsCompressWell() throws IOException {
+        Path file = Files.createTempFile("analytics", ".bin");
+        try {
+            try (AnalyticsExporter exporter = new AnalyticsExporter(file)) {
+                for (int i = 0; i < 100_000; i++) {
+                    exporter.onEvent(event(i));
+                }
+            }
+            assertTrue(Files.size(file) < 3 * 100_000, Files.size(file) + " bytes for 100000 events.");
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testOtherFilesAreRejected() throws IOException {
+        Path file = Files.createTempFile("analytics", ".bin");
+        try {
+            Files.write(file, new byte[]{1, 2, 3, 4, 5});
+            assertThrows(IOException.class, () -> AnalyticsExporter.scan(file, block -> { }));
+            assertThrows(IOException.class, () -> new AnalyticsExporter(file));
+            assertEquals(5, Files.size(file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
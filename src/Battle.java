@@ -0,0 +1,282 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The battle rules of the game, played without allocating any memory once every monster name has been seen.
+ *
+ * Every game fights through a Battle, and the constants below are the ones the decision engine and the shop
+ * optimizer model. Narration is assembled from templates encoded once into bytes, with numbers written digit
+ * by digit, into a fixed buffer that is copied to the output stream on flush. Monster names are encoded the
+ * first time they are seen and looked up afterwards.
+ *
+ * A battle serves one encounter at a time and is not thread-safe; give each concurrent game its own.
+ */
+class Battle {
+    static final int HEALER_HEAL = 10;
+    static final int HEALER_STRIKE_MIN = 2;
+    static final int HEALER_STRIKE_MAX = 8;
+    static final int WARRIOR_EXTRA_DAMAGE_MIN = 5;
+    static final int WARRIOR_EXTRA_DAMAGE_MAX = 15;
+    static final double ESCAPE_CHANCE = 0.5;
+
+    private static final int BUFFER_SIZE = 4096;
+    private static final int MAX_LINE = 256;
+    private static final int MAX_NAMES = 64;
+
+    private static final byte[] ENCOUNTER = bytes("\nYou encounter a ");
+    private static final byte[] ENCOUNTER_END = bytes("!\n");
+    private static final byte[] MENU = bytes("\nWhat would you like to do?\n");
+    private static final byte[] RUN_HINT = bytes("This fight is going badly. Running away may be wise.\n");
+    private static final byte[] MENU_CHOICES = bytes("1. Attack\n2. Run\n");
+    private static final byte[] PLAYER_ATTACK = bytes("You attack the ");
+    private static final byte[] FOR = bytes(" for ");
+    private static final byte[] DAMAGE_END = bytes(" damage.\n");
+    private static final byte[] MONSTER_ATTACK_START = bytes("The ");
+    private static final byte[] MONSTER_ATTACK = bytes(" attacks you for ");
+    private static final byte[] HEALER_STRIKE = bytes("Your Healer companion strikes the ");
+    private static final byte[] HEALED = bytes("Your Healer companion restores your health by " + HEALER_HEAL + ".\n");
+    private static final byte[] WARRIOR_ATTACK = bytes("Your Warrior companion attacks the ");
+    private static final byte[] RUN = bytes("You try to run away!\n");
+    private static final byte[] ESCAPED = bytes("You successfully escape!\n");
+    private static final byte[] BLOCKED_END = bytes(" blocks your escape!\n");
+    private static final byte[] ROOM_BLOCKED = bytes("The monsters block your escape!\n");
+    private static final byte[] INVALID = bytes("Invalid choice. Try again.\n");
+    private static final byte[] VICTORY = bytes("\nCongratulations! You defeated the ");
+    private static final byte[] AND_GAINED = bytes(" and gained ");
+    private static final byte[] GOLD_END = bytes(" gold.\n");
+    private static final byte[] DEFEAT = bytes("\nYou were defeated by the ");
+    private static final byte[] DEFEAT_END = bytes(". Game Over!\n");
+
+    private final Random random;
+    private final OutputStream out;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final String[] names = new String[MAX_NAMES];
+    private final byte[][] encodedNames = new byte[MAX_NAMES][];
+    private int length;
+    private int nameCount;
+
+    private Player player;
+    private Monster monster;
+    private byte[] monsterName;
+
+    /**
+     * Constructs a new Battle.
+     *
+     * @param random The source of the dice rolls.
+     * @param out    The stream the narration is written to.
+     */
+    public Battle(Random random, OutputStream out) {
+        this.random = random;
+        this.out = out;
+    }
+
+    /**
+     * Starts a battle between the player and a monster and narrates the encounter.
+     *
+     * @param player  The player.
+     * @param monster The monster the player encounters.
+     */
+    public void start(Player player, Monster monster) {
+        this.player = player;
+        this.monster = monster;
+        this.monsterName = encodedName(monster.getName());
+        append(ENCOUNTER).append(monsterName).append(ENCOUNTER_END);
+    }
+
+    /**
+     * Check if either side of the battle has fallen.
+     *
+     * @return True if the battle is over; otherwise, false.
+     */
+    public boolean isOver() {
+        return monster.getHealth() <= 0 || player.getHealth() <= 0;
+    }
+
+    /**
+     * Narrates the battle menu.
+     *
+     * @param suggestRunning Whether to advise the player to run away.
+     */
+    public void showMenu(boolean suggestRunning) {
+        append(MENU);
+        if (suggestRunning) {
+            append(RUN_HINT);
+        }
+        append(MENU_CHOICES);
+    }
+
+    /**
+     * Plays one round of attacks: the player and the monster strike each other, then the companions act.
+     *
+     * @param healerStrikes Whether a Healer companion strikes the monster instead of healing the player.
+     */
+    public void attack(boolean healerStrikes) {
+        int playerAttack = random.nextInt(player.getDamage());
+        int monsterAttack = random.nextInt(monster.getDamage());
+
+        append(PLAYER_ATTACK).append(monsterName).append(FOR).append(playerAttack).append(DAMAGE_END);
+        monster.takeDamage(playerAttack);
+
+        append(MONSTER_ATTACK_START).append(monsterName).append(MONSTER_ATTACK).append(monsterAttack).append(DAMAGE_END);
+        player.takeDamage(monsterAttack);
+
+        if (player.isHasHealerCompanion() && healerStrikes) {
+            int healerAttack = random.nextInt(HEALER_STRIKE_MAX - HEALER_STRIKE_MIN + 1) + HEALER_STRIKE_MIN;
+            append(HEALER_STRIKE).append(monsterName).append(FOR).append(healerAttack).append(DAMAGE_END);
+            monster.takeDamage(healerAttack);
+        } else if (player.isHasHealerCompanion()) {
+            append(HEALED);
+            player.healerCompanionHeal();
+        }
+
+        if (player.isHasWarriorCompanion()) {
+            int warriorAttack = random.nextInt(WARRIOR_EXTRA_DAMAGE_MAX - WARRIOR_EXTRA_DAMAGE_MIN + 1) + WARRIOR_EXTRA_DAMAGE_MIN;
+            append(WARRIOR_ATTACK).append(monsterName).append(FOR).append(warriorAttack).append(DAMAGE_END);
+            monster.takeDamage(warriorAttack);
+        }
+    }
+
+    /**
+     * Tries to run away; if the escape fails, the monster strikes the player.
+     *
+     * @return True if the player escaped; otherwise, false.
+     */
+    public boolean run() {
+        append(RUN);
+        if (random.nextDouble() < ESCAPE_CHANCE) {
+            append(ESCAPED);
+            return true;
+        }
+        append(MONSTER_ATTACK_START).append(monsterName).append(BLOCKED_END);
+        player.takeDamage(random.nextInt(monster.getDamage()));
+        return false;
+    }
+
+    /**
+     * Tries to run away from a room before any battle starts; if the escape fails, one of the room's
+     * monsters strikes the player.
+     *
+     * @param player   The player.
+     * @param monsters The monsters in the room.
+     * @return The monster that blocked the escape, or null if the player escaped.
+     */
+    public Monster fleeRoom(Player player, Monster[] monsters) {
+        append(RUN);
+        if (random.nextDouble() < ESCAPE_CHANCE) {
+            append(ESCAPED);
+            return null;
+        }
+        Monster blocker = monsters[random.nextInt(monsters.length)];
+        int monsterAttack = random.nextInt(blocker.getDamage());
+        player.takeDamage(monsterAttack);
+        append(ROOM_BLOCKED).append(MONSTER_ATTACK_START).append(encodedName(blocker.getName()))
+                .append(MONSTER_ATTACK).append(monsterAttack).append(DAMAGE_END);
+        return blocker;
+    }
+
+    /**
+     * Narrates a choice that is not on the menu.
+     */
+    public void invalidChoice() {
+        append(INVALID);
+    }
+
+    /**
+     * Ends a battle that is over, giving the player the monster's gold if they won. The narration announces
+     * the gold the player actually gained.
+     *
+     * @return The gold the player gained, which is less than the reward if their gold is at its limit, or -1
+     *         if the player was defeated.
+     */
+    public int finish() {
+        if (player.getHealth() <= 0) {
+            append(DEFEAT).append(monsterName).append(DEFEAT_END);
+            return -1;
+        }
+        int gained = player.addGold(monster.getGoldReward());
+        append(VICTORY).append(monsterName).append(AND_GAINED).append(gained).append(GOLD_END);
+        return gained;
+    }
+
+    /**
+     * Writes the narration so far to the output stream and flushes it.
+     */
+    public void flush() {
+        try {
+            out.write(buffer, 0, length);
+            out.flush();
+            length = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Battle append(byte[] text) {
+        if (length + text.length > buffer.length) {
+            flush();
+        }
+        System.arraycopy(text, 0, buffer, length, text.length);
+        length += text.length;
+        return this;
+    }
+
+    /**
+     * Appends the decimal digits of a number.
+     */
+    private Battle append(int value) {
+        if (length + 11 > buffer.length) {
+            flush();
+        }
+        long remaining = value;
+        if (remaining < 0) {
+            buffer[length++] = '-';
+            remaining = -remaining;
+        }
+        int end = length + digits(remaining);
+        for (int i = end - 1; i >= length; i--) {
+            buffer[i] = (byte) ('0' + remaining % 10);
+            remaining /= 10;
+        }
+        length = end;
+        return this;
+    }
+
+    private static int digits(long value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    /**
+     * Returns the encoded form of a monster name, encoding it the first time it is seen. Names longer than a
+     * line are cut short so that a template line always fits in the buffer.
+     */
+    private byte[] encodedName(String name) {
+        for (int i = 0; i < nameCount; i++) {
+            if (names[i].equals(name)) {
+                return encodedNames[i];
+            }
+        }
+        byte[] encoded = bytes(name);
+        if (encoded.length > MAX_LINE) {
+            encoded = Arrays.copyOf(encoded, MAX_LINE);
+        }
+        if (nameCount < MAX_NAMES) {
+            names[nameCount] = name;
+            encodedNames[nameCount] = encoded;
+            nameCount++;
+        }
+        return encoded;
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,141 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class BattleTest {
+    private static final int WARMUP_BATTLES = 20_000;
+    private static final int MEASURED_BATTLES = 20_000;
+
+    @Test
+    public void testNarrationMatchesGame() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Battle battle = new Battle(new Random(1), out);
+        Player player = new Player("Alice", 100, 20, 0, true, true);
+        Monster goblin = new Monster("Goblin", 30, 5, 10);
+
+        battle.start(player, goblin);
+        while (!battle.isOver()) {
+            battle.showMenu(false);
+            battle.attack(false);
+        }
+        assertEquals(10, battle.finish());
+        battle.flush();
+
+        String narration = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        assertTrue(narration.startsWith("\nYou encounter a Goblin!\n\nWhat would you like to do?\n1. Attack\n2. Run\n"));
+        assertTrue(narration.matches("(?s).*You attack the Goblin for \\d+ damage\\.\n.*"));
+        assertTrue(narration.contains("Your Healer companion restores your health by 10.\n"));
+        assertTrue(narration.matches("(?s).*Your Warrior companion attacks the Goblin for ([5-9]|1[0-5]) damage\\.\n.*"));
+        assertTrue(narration.endsWith("\nCongratulations! You defeated the Goblin and gained 10 gold.\n"));
+        assertEquals(10, player.getPlayerGold());
+    }
+
+    @Test
+    public void testDefeatAndLargeNumbers() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Battle battle = new Battle(new Random(2), out);
+        Player player = new Player("Bob", 1, 1, 0, false, false);
+        Monster giant = new Monster("Giant", 1_234_567, 1_000_000, 1_234_567);
+
+        battle.start(player, giant);
+        while (!battle.isOver()) {
+            battle.attack(false);
+        }
+        assertEquals(-1, battle.finish());
+        battle.flush();
+
+        String narration = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        assertTrue(narration.contains("You attack the Giant for 0 damage.\n"));
+        assertTrue(narration.matches("(?s).*The Giant attacks you for [1-9]\\d* damage\\.\n.*"));
+        assertTrue(narration.endsWith("\nYou were defeated by the Giant. Game Over!\n"));
+    }
+
+    @Test
+    public void testVictoryNarratesCappedGold() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Battle battle = new Battle(new Random(5), out);
+        Player player = new Player("Dave", 100, 50, Integer.MAX_VALUE - 3, false, false);
+        Monster goblin = new Monster("Goblin", 30, 5, 10);
+
+        battle.start(player, goblin);
+        while (!battle.isOver()) {
+            battle.attack(false);
+        }
+        assertEquals(3, battle.finish());
+        battle.flush();
+
+        String narration = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        assertTrue(narration.endsWith("\nCongratulations! You defeated the Goblin and gained 3 gold.\n"));
+        assertEquals(Integer.MAX_VALUE, player.getPlayerGold());
+    }
+
+    @Test
+    public void testFleeingRoom() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Battle battle = new Battle(new Random(4), out);
+        Player player = new Player("Carol", 1000, 20, 0, false, false);
+        Monster[] monsters = {new Monster("Goblin", 30, 5, 10)};
+
+        int blocked = 0;
+        for (int i = 0; i < 50; i++) {
+            if (battle.fleeRoom(player, monsters) != null) {
+                blocked++;
+            }
+        }
+        battle.flush();
+
+        String narration = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        assertTrue(blocked > 0 && blocked < 50, blocked + " of 50 escapes were blocked.");
+        assertTrue(narration.contains("You try to run away!\nYou successfully escape!\n"));
+        assertTrue(narration.matches("(?s).*The monsters block your escape!\nThe Goblin attacks you for [0-4] damage\\.\n.*"));
+        assertTrue(player.getHealth() < 1000);
+    }
+
+    @Test
+    public void testBattleRoundsDoNotAllocate() {
+        assumeTrue(AllocationMeter.isSupported());
+        Battle battle = new Battle(new Random(3), OutputStream.nullOutputStream());
+        EconomyLedger ledger = new EconomyLedger();
+        Player player = new Player("Bench", Integer.MAX_VALUE / 2, 30, 0, true, true);
+        ledger.openAccount(player);
+        Monster[] monsters = new Monster[WARMUP_BATTLES + AllocationMeter.getMeasurements() * MEASURED_BATTLES];
+        for (int i = 0; i < monsters.length; i++) {
+            monsters[i] = new Monster(i % 2 == 0 ? "Goblin" : "Orc", 30, 5, 10);
+        }
+
+        long[] rounds = new long[AllocationMeter.getMeasurements()];
+        long fewestBytes = AllocationMeter.fewestBytes(
+                () -> playBattles(battle, player, ledger, monsters, 0, WARMUP_BATTLES),
+                m -> {
+                    int from = WARMUP_BATTLES + m * MEASURED_BATTLES;
+                    rounds[m] = playBattles(battle, player, ledger, monsters, from, from + MEASURED_BATTLES);
+                });
+
+        for (long played : rounds) {
+            assertTrue(played >= MEASURED_BATTLES);
+        }
+        assertEquals(0, fewestBytes, fewestBytes + " bytes were allocated in " + MEASURED_BATTLES + " battles.");
+    }
+
+    private static long playBattles(Battle battle, Player player, EconomyLedger ledger, Monster[] monsters,
+                                    int from, int to) {
+        long rounds = 0;
+        for (int i = from; i < to; i++) {
+            battle.start(player, monsters[i]);
+            while (!battle.isOver()) {
+                battle.showMenu(false);
+                battle.attack(i % 3 == 0);
+                rounds++;
+            }
+            ledger.recordMint(player, battle.finish());
+            battle.flush();
+        }
+        return rounds;
+    }
+}
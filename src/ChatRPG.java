@@ -1,5 +1,13 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 /**
  * Represents a game entity with basic attributes such as name, health, damage, and gold reward.
  */
@@ -13,18 +21,12 @@ interface GameEntity {
 
 /**
  * A class that processes commands given by the player in the game.
+ *
+ * The rules live in Game; the processor reads the player's answers to every menu from the console and
+ * prints the narration.
  */
 class CommandProcessor {
-    private static final int WARRIOR_EXTRA_DAMAGE_MIN = 5;
-    private static final int WARRIOR_EXTRA_DAMAGE_MAX = 15;
-    private static final Random random = new Random();
-
-    private final Player player;
-    private final Monster[] monsters;
-    private Companion[] companions;
-    private final Shop shop;
-    private final Room room;
-
+    private final Game game;
     private final Scanner scanner;
 
     /**
@@ -32,205 +34,77 @@ class CommandProcessor {
      *
      * @param player The player in the game.
      * @param monsters The array of monsters in the game.
-     * @param companions The array of companions available in the game.
      * @param shop The shop where the player can buy weapons and armor.
      * @param room The room where the player can explore and encounter monsters.
      */
-    public CommandProcessor(Player player, Monster[] monsters, Companion[] companions, Shop shop, Room room) {
-        this.player = player;
-        this.monsters = monsters;
-        this.companions = companions;
-        this.shop = shop;
-        this.room = room;
-        this.scanner = new Scanner(System.in);
+    public CommandProcessor(Player player, Monster[] monsters, Shop shop, Room room) {
+        this(player, monsters, shop, room, new EconomyLedger(), new Scanner(System.in));
     }
 
     /**
-     * Processes the command based on the provided choice.
+     * Constructs a CommandProcessor object that records every gold reward and purchase in the given ledger
+     * and reads the player's choices from the given scanner.
      *
-     * @param choice The player's choice as an integer.
+     * @param player The player in the game.
+     * @param monsters The array of monsters in the game.
+     * @param shop The shop where the player can buy weapons and armor.
+     * @param room The room where the player can explore and encounter monsters.
+     * @param ledger The ledger that records the gold the player earns and spends.
+     * @param scanner The scanner to read the player's choices from, shared with the main menu.
      */
-    public void processCommand(int choice) {
-        switch (choice) {
-            case 1:
-                explore();
-                break;
-            case 2:
-                player.displayStats();
-                break;
-            case 3:
-                recruitCompanion();
-                break;
-            case 4:
-                visitShop();
-                break;
-            case 5:
-                System.out.println("Thanks for playing! Goodbye!");
-                System.exit(0);
-                break;
-            default:
-                System.out.println("Invalid choice. Try again.");
-        }
+    public CommandProcessor(Player player, Monster[] monsters, Shop shop, Room room, EconomyLedger ledger,
+                            Scanner scanner) {
+        this.game = new Game(player, monsters, shop, room, ledger, new Random(), System.out::println, System.out);
+        this.scanner = scanner;
     }
 
     /**
-     * Allows the player to explore the current room, encountering monsters or attempting to run away.
-     */
-    private void explore() {
-        int roomIndex = random.nextInt(room.getRooms().length);
-        System.out.println("\nYou are in a " + room.getRooms()[roomIndex] + ". What would you like to do?");
-        System.out.println("1. Attack monsters");
-        System.out.println("2. Run away");
-
-        int choice = scanner.nextInt();
-
-        switch (choice) {
-            case 1:
-                exploreRoom();
-                break;
-            case 2:
-                System.out.println("You try to run away!");
-                if (random.nextDouble() < 0.5) {
-                    System.out.println("You successfully escape!");
-                } else {
-                    System.out.println("The monsters block your escape!");
-                    int monsterIndex = random.nextInt(monsters.length);
-                    Monster monster = monsters[monsterIndex];
-                    int monsterAttack = random.nextInt(monster.getDamage());
-                    player.takeDamage(monsterAttack);
-                    System.out.println("The " + monster.getName() + " attacks you for " + monsterAttack + " damage.");
-                }
-                break;
-            default:
-                System.out.println("Invalid choice. Try again.");
-        }
+     * Lets a decision engine advise the player and direct the Healer companion in battle.
+     *
+     * @param decisionEngine The engine to consult every round, or null to let companions act as usual.
+     */
+    public void setDecisionEngine(CombatDecisionEngine decisionEngine) {
+        game.setDecisionEngine(decisionEngine);
     }
 
     /**
-     * Allows the player to explore the current room and encounter a random monster.
+     * Registers a listener for everything that happens to the player, including purchases in the shop.
+     *
+     * @param listener The listener to call after every event.
      */
-    private void exploreRoom() {
-        int monsterIndex = random.nextInt(monsters.length);
-        Monster monster = monsters[monsterIndex];
-
-        System.out.println("\nYou encounter a " + monster.getName() + "!");
-
-        while (monster.getHealth() > 0 && player.getHealth() > 0) {
-            System.out.println("\nWhat would you like to do?");
-            System.out.println("1. Attack");
-            System.out.println("2. Run");
-
-            int choice = scanner.nextInt();
-            int monsterAttack;
-            switch (choice) {
-                case 1:
-                    int playerAttack = random.nextInt(player.getDamage());
-                    monsterAttack = random.nextInt(monster.getDamage());
-
-                    System.out.println("You attack the " + monster.getName() + " for " + playerAttack + " damage.");
-                    monster.takeDamage(playerAttack);
-
-                    System.out.println("The " + monster.getName() + " attacks you for " + monsterAttack + " damage.");
-                    player.takeDamage(monsterAttack);
-
-                    if (player.isHasHealerCompanion()) {
-                        System.out.println("Your Healer companion restores your health by 10.");
-                        player.healerCompanionHeal();
-                    }
-
-                    if (player.isHasWarriorCompanion()) {
-                        int warriorAttack = random.nextInt(WARRIOR_EXTRA_DAMAGE_MAX - WARRIOR_EXTRA_DAMAGE_MIN + 1) + WARRIOR_EXTRA_DAMAGE_MIN;
-                        System.out.println("Your Warrior companion attacks the " + monster.getName() + " for " + warriorAttack + " damage.");
-                        monster.takeDamage(warriorAttack);
-                    }
-                    break;
-                case 2:
-                    System.out.println("You try to run away!");
-                    if (random.nextDouble() < 0.5) {
-                        System.out.println("You successfully escape!");
-                        return;
-                    } else {
-                        System.out.println("The " + monster.getName() + " blocks your escape!");
-                        monsterAttack = random.nextInt(monster.getDamage());
-                        player.takeDamage(monsterAttack);
-                    }
-                    break;
-                default:
-                    System.out.println("Invalid choice. Try again.");
-            }
-        }
-
-        if (player.getHealth() > 0) {
-            System.out.println("\nCongratulations! You defeated the " + monster.getName() + " and gained " + monster.getGoldReward() + " gold.");
-            player.addGold(monster.getGoldReward());
-        } else {
-            System.out.println("\nYou were defeated by the " + monster.getName() + ". Game Over!");
-            System.exit(0);
-        }
+    public void addListener(GameEventListener listener) {
+        game.addListener(listener);
     }
 
     /**
-     * Allows the player to recruit a companion to join their journey.
+     * Tracks the player's progress through the given quests and announces every quest they complete.
+     *
+     * @param book The quests the player can complete.
      */
-    protected void recruitCompanion() {
-        System.out.println("\nYou found someone willing to join your journey!");
-
-        if (player.hasMaxCompanions()) {
-            System.out.println("You already have two companions. You cannot recruit more.");
-            return;
-        }
-
-        System.out.println("Choose a companion to recruit:");
-        System.out.println("1. Healer (Restores health)");
-        System.out.println("2. Warrior (Deals extra damage)");
-
-        int choice = scanner.nextInt();
-
-        switch (choice) {
-            case 1:
-                if (!player.isHasHealerCompanion()) {
-                    player.setHasHealerCompanion(true);
-                    System.out.println("You recruited a Healer companion!");
-                } else {
-                    System.out.println("You already have a Healer companion.");
-                }
-                break;
-            case 2:
-                if (!player.isHasWarriorCompanion()) {
-                    player.setHasWarriorCompanion(true);
-                    System.out.println("You recruited a Warrior companion!");
-                } else {
-                    System.out.println("You already have a Warrior companion.");
-                }
-                break;
-            default:
-                System.out.println("Invalid choice. Try again.");
-        }
+    public void trackQuests(QuestBook book) {
+        game.trackQuests(book);
     }
 
     /**
-     * Allows the player to visit the shop and buy weapons or armor.
+     * Greets the player and shows the main menu.
      */
-    private void visitShop() {
-        System.out.println("\nWelcome to the Shop! What would you like to buy?");
-        System.out.println("1. Weapons");
-        System.out.println("2. Armor");
-        System.out.println("3. Exit shop");
-
-        int choice = scanner.nextInt();
+    public void start() {
+        game.start();
+    }
 
-        switch (choice) {
-            case 1:
-                shop.buyWeapon(player);
-                break;
-            case 2:
-                shop.buyArmor(player);
-                break;
-            case 3:
-                System.out.println("Thanks for visiting the Shop!");
-                break;
-            default:
-                System.out.println("Invalid choice. Try again.");
+    /**
+     * Processes the command based on the provided choice, reading the player's answers to any menus it
+     * leads to until the player is back at the main menu. Exits when the game is over.
+     *
+     * @param choice The player's choice as an integer.
+     */
+    public void processCommand(int choice) {
+        game.handle(choice);
+        while (game.getState() != Game.State.MAIN_MENU && game.getState() != Game.State.FINISHED) {
+            game.handle(scanner.nextInt());
+        }
+        if (game.getState() == Game.State.FINISHED) {
+            System.exit(0);
         }
     }
 }
@@ -239,55 +113,165 @@ class CommandProcessor {
  * RPGGame class represents the main class for running the RPG Game.
  */
 public class ChatRPG {
-    private static final int INITIAL_PLAYER_HEALTH = 100;
-    private static final int INITIAL_PLAYER_DAMAGE = 20;
-    private static final int INITIAL_PLAYER_GOLD = 0;
+    static final int INITIAL_PLAYER_HEALTH = 100;
+    static final int INITIAL_PLAYER_DAMAGE = 20;
+    static final int INITIAL_PLAYER_GOLD = 0;
+    // The registry doubles as it fills, so it starts at the size of a small local game.
+    private static final long REGISTRY_EXPECTED_PLAYERS = 1_000;
+    private static final long ECONOMY_AUDIT_PERIOD_SECONDS = 60;
+    static final String COMPANION_AI_PROPERTY = "chatrpg.companionAi";
+    static final String ANALYTICS_PROPERTY = "chatrpg.analytics";
 
     /**
      * Main method to start the RPG Game.
-     * @param args The command-line arguments.
+     * @param args The command-line arguments. An optional first argument names the player registry file
+     *             used to save and restore players between sessions.
+     * @throws IOException If the player's name cannot be read.
      */
-    public static void main(String[] args) {
-        Scanner scanner = new Scanner(System.in);
-
+    public static void main(String[] args) throws IOException {
+        // Prompt before anything else is loaded so the player can start typing while the game warms up.
         System.out.println("Welcome to the RPG Game!\n Enter your name: ");
-        String playerName = scanner.nextLine();
+        BufferedReader console = new BufferedReader(new InputStreamReader(System.in));
+        // Creating a Scanner loads regex and locale data; do it while the player is typing.
+        CompletableFuture<Scanner> scannerSetup = CompletableFuture.supplyAsync(() -> new Scanner(console));
+        PlayerRegistry registry = args.length > 0 ? openRegistry(args[0]) : null;
 
-        Player player = new Player(playerName, INITIAL_PLAYER_HEALTH, INITIAL_PLAYER_DAMAGE,
-                INITIAL_PLAYER_GOLD, false, false);
+        String playerName = console.readLine();
+        if (playerName == null) {
+            return;
+        }
+        Scanner scanner = scannerSetup.join();
+        if (registry != null && !PlayerRegistry.canStore(playerName)) {
+            System.out.println("Names longer than " + PlayerRegistry.MAX_NAME_BYTES + " bytes cannot be saved. Progress will not be saved.");
+            registry = null;
+        }
+
+        Player player = registry != null ? registry.find(playerName) : null;
+        if (player == null || player.getHealth() <= 0) {
+            player = new Player(playerName, INITIAL_PLAYER_HEALTH, INITIAL_PLAYER_DAMAGE,
+                    INITIAL_PLAYER_GOLD, false, false);
+        } else {
+            System.out.println("Welcome back! Your saved progress has been restored.");
+        }
+        if (registry != null) {
+            saveOnExit(registry, player);
+        }
+
+        EconomyLedger ledger = new EconomyLedger();
+        ledger.startAuditor(ECONOMY_AUDIT_PERIOD_SECONDS, TimeUnit.SECONDS,
+                report -> System.err.println("Economy audit failed: " + report.getProblems()));
+
+        AnalyticsExporter analytics = System.getProperty(ANALYTICS_PROPERTY) != null
+                ? openAnalytics(System.getProperty(ANALYTICS_PROPERTY)) : null;
+        if (analytics != null) {
+            closeOnExit(analytics);
+        }
+        QuestBook quests = new QuestBook(createQuests());
 
         while (player.getHealth() > 0) {
             Monster[] monsters = createMonsters();
-            Companion[] companions = createCompanions();
             Shop shop = new Shop();
             Room room = new Room();
 
-            System.out.println("Hello, " + player.getName() + "! Your journey begins now.");
-            CommandProcessor commandProcessor = new CommandProcessor(player, monsters, companions, shop, room);
+            CommandProcessor commandProcessor = new CommandProcessor(player, monsters, shop, room, ledger, scanner);
+            commandProcessor.trackQuests(quests);
+            if (analytics != null) {
+                commandProcessor.addListener(analytics);
+            }
+            if (Boolean.getBoolean(COMPANION_AI_PROPERTY)) {
+                commandProcessor.setDecisionEngine(new CombatDecisionEngine());
+            }
+            commandProcessor.start();
 
             while (player.getHealth() > 0) {
-                System.out.println("\nWhat would you like to do?");
-                System.out.println("1. Explore");
-                System.out.println("2. Check stats");
-                System.out.println("3. Recruit a companion");
-                System.out.println("4. Visit the shop");
-                System.out.println("5. Quit game");
-
                 int choice = scanner.nextInt();
                 scanner.nextLine(); // Consume the newline character
 
                 commandProcessor.processCommand(choice);
+                if (registry != null) {
+                    try {
+                        registry.save(player);
+                    } catch (IOException e) {
+                        System.out.println("Could not save your progress (" + e.getMessage() + ").");
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Opens the player registry stored in the given file.
+     * @param path The path of the registry file.
+     * @return The opened registry, or null if it could not be opened.
+     */
+    private static PlayerRegistry openRegistry(String path) {
+        try {
+            return PlayerRegistry.open(Paths.get(path), REGISTRY_EXPECTED_PLAYERS);
+        } catch (IOException e) {
+            System.out.println("Could not open the player registry (" + e.getMessage() + "). Progress will not be saved.");
+            return null;
+        }
+    }
+
+    /**
+     * Saves the player and closes the registry when the game exits.
+     * @param registry The registry to save the player to.
+     * @param player The player to save.
+     */
+    private static void saveOnExit(PlayerRegistry registry, Player player) {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                registry.save(player);
+                registry.close();
+            } catch (IOException e) {
+                System.err.println("Could not save the player registry: " + e.getMessage());
             }
+        }));
+    }
+
+    /**
+     * Opens the analytics file the game's events are exported to.
+     * @param path The path of the analytics file.
+     * @return The exporter, or null if the file could not be opened.
+     */
+    static AnalyticsExporter openAnalytics(String path) {
+        return openAnalytics(path, AnalyticsExporter.DEFAULT_BLOCKS);
+    }
 
-            System.out.println("Game Over! Your journey has come to an end.");
+    /**
+     * Opens the analytics file the game's events are exported to, with a pool of the given number of blocks.
+     * @param path The path of the analytics file.
+     * @param blocks The number of blocks, which should exceed the number of threads reporting events.
+     * @return The exporter, or null if the file could not be opened.
+     */
+    static AnalyticsExporter openAnalytics(String path, int blocks) {
+        try {
+            return new AnalyticsExporter(Paths.get(path), AnalyticsExporter.DEFAULT_BLOCK_ROWS, blocks);
+        } catch (IOException e) {
+            System.out.println("Could not open the analytics file (" + e.getMessage() + "). Events will not be exported.");
+            return null;
         }
     }
 
+    /**
+     * Writes the remaining events and closes the analytics file when the game exits.
+     * @param analytics The exporter to close.
+     */
+    static void closeOnExit(AnalyticsExporter analytics) {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                analytics.close();
+            } catch (IOException e) {
+                System.err.println("Could not write the analytics: " + e.getMessage());
+            }
+        }));
+    }
+
     /**
      * Creates an array of Monsters with predefined attributes.
      * @return An array of Monster objects.
      */
-    private static Monster[] createMonsters() {
+    static Monster[] createMonsters() {
         String[] monsters = { "Goblin", "Orc", "Dragon" };
         int[] monsterHealth = { 30, 50, 100 };
         int[] monsterDamage = { 5, 10, 20 };
@@ -301,14 +285,18 @@ public class ChatRPG {
     }
 
     /**
-     * Creates an array of Companions with predefined types.
-     * @return An array of Companion objects.
+     * Creates the quests every player can complete.
+     * @return A list of Quest objects.
      */
-    private static Companion[] createCompanions() {
-        Companion[] companions = new Companion[2];
-        companions[0] = new Companion("Healer");
-        companions[1] = new Companion("Warrior");
-        return companions;
+    static List<Quest> createQuests() {
+        List<Quest> quests = new ArrayList<>();
+        quests.add(new Quest("Goblin Slayer", new Quest.Goal(GameEvent.Type.VICTORY, "Goblin", 100)));
+        quests.add(new Quest("Fellowship", new Quest.Goal(GameEvent.Type.RECRUIT, "Healer", 1),
+                new Quest.Goal(GameEvent.Type.RECRUIT, "Warrior", 1)));
+        quests.add(new Quest("Quick Study", GameEvent.Type.EXPLORE, 10,
+                new Quest.Goal(GameEvent.Type.PURCHASE, "Weapon 3", 1)));
+        quests.add(new Quest("Dragon Slayer", new Quest.Goal(GameEvent.Type.VICTORY, "Dragon", 1)));
+        return quests;
     }
 }
 
@@ -468,12 +456,16 @@ class Player implements GameEntity {
     }
 
     /**
-     * Adds a specified amount of gold to the player's total gold.
+     * Adds a specified amount of gold to the player's total gold. Gold that would take the total past
+     * Integer.MAX_VALUE is not added.
      *
      * @param amount The amount of gold to be added.
+     * @return The amount of gold actually added.
      */
-    public void addGold(int amount) {
-        playerGold += amount;
+    public int addGold(int amount) {
+        int added = (int) Math.min(amount, (long) Integer.MAX_VALUE - playerGold);
+        playerGold += added;
+        return added;
     }
 
     /**
@@ -534,25 +526,36 @@ class Player implements GameEntity {
      * Heals the player by increasing their health points.
      */
     public void healerCompanionHeal() {
-        playerHealth += 10;
+        playerHealth += Battle.HEALER_HEAL;
     }
 
     /**
      * Displays the statistics of the player, including health, damage, gold, and companions.
      */
     public void displayStats() {
-        System.out.println("\n----- " + playerName + "'s Stats -----");
-        System.out.println("Health: " + playerHealth);
-        System.out.println("Damage: " + playerDamage);
-        System.out.println("Gold: " + playerGold);
-        System.out.println("Companions: ");
+        System.out.println(describeStats());
+    }
+
+    /**
+     * Returns the statistics of the player, including health, damage, gold, and companions.
+     *
+     * @return The player's statistics as display text.
+     */
+    public String describeStats() {
+        StringBuilder stats = new StringBuilder();
+        stats.append("\n----- ").append(playerName).append("'s Stats -----");
+        stats.append("\nHealth: ").append(playerHealth);
+        stats.append("\nDamage: ").append(playerDamage);
+        stats.append("\nGold: ").append(playerGold);
+        stats.append("\nCompanions: ");
         if (hasHealerCompanion) {
-            System.out.println("- Healer");
+            stats.append("\n- Healer");
         }
         if (hasWarriorCompanion) {
-            System.out.println("- Warrior");
+            stats.append("\n- Warrior");
         }
-        System.out.println("-------------------------");
+        stats.append("\n-------------------------");
+        return stats.toString();
     }
 
     /**
@@ -677,10 +680,9 @@ class Shop {
     private ShopItem[] armors;
 
     /**
-     * Constructs a new Shop object and initializes the available shop items.
+     * Constructs a new Shop object. The shop items are initialized the first time they are needed.
      */
     public Shop() {
-        initializeShopItems();
     }
 
     /**
@@ -701,75 +703,91 @@ class Shop {
     }
 
     /**
-     * Allows the player to buy a weapon from the shop.
+     * Returns the weapons available in the shop.
      *
-     * @param player The player object making the purchase.
+     * @return An array of the weapons for sale.
      */
-    public void buyWeapon(Player player) {
-        System.out.println("\nAvailable Weapons:");
-        for (int i = 0; i < weapons.length; i++) {
-            ShopItem weapon = weapons[i];
-            System.out.println((i + 1) + ". " + weapon.getName() + " (Damage: " + weapon.getDamage() + ") - " + weapon.getPrice() + " gold");
+    public ShopItem[] getWeapons() {
+        if (weapons == null) {
+            initializeShopItems();
         }
-        System.out.println((weapons.length + 1) + ". Cancel");
-
-        Scanner scanner = new Scanner(System.in);
-        int choice = scanner.nextInt();
-
-        if (choice >= 1 && choice <= weapons.length) {
-            int weaponIndex = choice - 1;
-            ShopItem weapon = weapons[weaponIndex];
-            int weaponPrice = weapon.getPrice();
-            int weaponDamage = weapon.getDamage();
-
-            if (player.getPlayerGold() >= weaponPrice) {
-                player.setPlayerGold(player.getPlayerGold() - weaponPrice);
-                player.setPlayerDamage(weaponDamage);
-                System.out.println("You bought the " + weapon.getName() + ". Your damage increased to " + weaponDamage + ".");
-            } else {
-                System.out.println("Not enough gold to buy the weapon.");
-            }
-        } else if (choice == weapons.length + 1) {
-            System.out.println("You canceled the purchase.");
-        } else {
-            System.out.println("Invalid choice. Try again.");
+        return weapons;
+    }
+
+    /**
+     * Returns the armors available in the shop.
+     *
+     * @return An array of the armors for sale.
+     */
+    public ShopItem[] getArmors() {
+        if (armors == null) {
+            initializeShopItems();
+        }
+        return armors;
+    }
+
+    /**
+     * Returns the list of weapons for sale, numbered as the player chooses them, followed by a cancel option.
+     *
+     * @return The weapon menu text.
+     */
+    public String weaponMenu() {
+        StringBuilder menu = new StringBuilder("\nAvailable Weapons:");
+        for (int i = 0; i < getWeapons().length; i++) {
+            ShopItem weapon = getWeapons()[i];
+            menu.append('\n').append(i + 1).append(". ").append(weapon.getName())
+                    .append(" (Damage: ").append(weapon.getDamage()).append(") - ").append(weapon.getPrice()).append(" gold");
+        }
+        return menu.append('\n').append(getWeapons().length + 1).append(". Cancel").toString();
+    }
+
+    /**
+     * Returns the list of armors for sale, numbered as the player chooses them, followed by a cancel option.
+     *
+     * @return The armor menu text.
+     */
+    public String armorMenu() {
+        StringBuilder menu = new StringBuilder("\nAvailable Armor:");
+        for (int i = 0; i < getArmors().length; i++) {
+            ShopItem armor = getArmors()[i];
+            menu.append('\n').append(i + 1).append(". ").append(armor.getName())
+                    .append(" (Defense: ").append(armor.getDefense()).append(") - ").append(armor.getPrice()).append(" gold");
         }
+        return menu.append('\n').append(getArmors().length + 1).append(". Cancel").toString();
     }
 
     /**
-     * Allows the player to buy an armor from the shop.
+     * Sells a weapon to the player if they can afford it, replacing the player's damage with the weapon's.
      *
      * @param player The player object making the purchase.
+     * @param index  The index of the weapon in the shop.
+     * @return The weapon bought, or null if the player does not have enough gold.
      */
-    public void buyArmor(Player player) {
-        System.out.println("\nAvailable Armor:");
-        for (int i = 0; i < armors.length; i++) {
-            ShopItem armor = armors[i];
-            System.out.println((i + 1) + ". " + armor.getName() + " (Defense: " + armor.getDefense() + ") - " + armor.getPrice() + " gold");
+    public ShopItem purchaseWeapon(Player player, int index) {
+        ShopItem weapon = getWeapons()[index];
+        if (player.getPlayerGold() < weapon.getPrice()) {
+            return null;
         }
-        System.out.println((armors.length + 1) + ". Cancel");
-
-        Scanner scanner = new Scanner(System.in);
-        int choice = scanner.nextInt();
-
-        if (choice >= 1 && choice <= armors.length) {
-            int armorIndex = choice - 1;
-            ShopItem armor = armors[armorIndex];
-            int armorPrice = armor.getPrice();
-            int armorDefense = armor.getDefense();
-
-            if (player.getPlayerGold() >= armorPrice) {
-                player.setPlayerGold(player.getPlayerGold() - armorPrice);
-                player.setPlayerHealth(player.getHealth() + armorDefense);
-                System.out.println("You bought the " + armor.getName() + ". Your defense increased to " + player.getHealth() + ".");
-            } else {
-                System.out.println("Not enough gold to buy the armor.");
-            }
-        } else if (choice == armors.length + 1) {
-            System.out.println("You canceled the purchase.");
-        } else {
-            System.out.println("Invalid choice. Try again.");
+        player.setPlayerGold(player.getPlayerGold() - weapon.getPrice());
+        player.setPlayerDamage(weapon.getDamage());
+        return weapon;
+    }
+
+    /**
+     * Sells an armor to the player if they can afford it, adding the armor's defense to the player's health.
+     *
+     * @param player The player object making the purchase.
+     * @param index  The index of the armor in the shop.
+     * @return The armor bought, or null if the player does not have enough gold.
+     */
+    public ShopItem purchaseArmor(Player player, int index) {
+        ShopItem armor = getArmors()[index];
+        if (player.getPlayerGold() < armor.getPrice()) {
+            return null;
         }
+        player.setPlayerGold(player.getPlayerGold() - armor.getPrice());
+        player.setPlayerHealth(player.getHealth() + armor.getDefense());
+        return armor;
     }
 }
 
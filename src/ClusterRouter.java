@@ -0,0 +1,249 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Routes player requests to the game node that owns them.
+ *
+ * The router keeps its own copy of the consistent-hash ring and a connection per node. When a node answers
+ * MOVED because the ring has changed, the router learns the current ring from that node and tries again, so
+ * several routers can share a cluster without being told about every change. A node that answers BUSY is
+ * still joining the ring and is asked again after a moment.
+ */
+class ClusterRouter implements AutoCloseable {
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long RETRY_DELAY_MILLIS = 20;
+    // A node answers a ring change only after handing off its players, each of which may take a node timeout.
+    private static final int RING_CHANGE_TIMEOUT_MILLIS = 60_000;
+
+    private final ConcurrentHashMap<String, GameNode.Link> links = new ConcurrentHashMap<>();
+    private volatile ConsistentHashRing ring;
+
+    /**
+     * Constructs a new ClusterRouter for a cluster with the given nodes.
+     *
+     * @param nodes The addresses of the nodes, as host:port.
+     */
+    public ClusterRouter(Collection<String> nodes) {
+        this.ring = new ConsistentHashRing(nodes);
+    }
+
+    /**
+     * Returns the router's current view of the ring.
+     *
+     * @return The ring.
+     */
+    public ConsistentHashRing getRing() {
+        return ring;
+    }
+
+    /**
+     * Loads a player from the node that owns them, starting a new player if the cluster has never seen them.
+     *
+     * @param name The name of the player.
+     * @return The player's state.
+     * @throws IOException If no node could serve the request.
+     */
+    public Player login(String name) throws IOException {
+        return (Player) route(name, link -> {
+            link.out.writeByte(GameNode.LOGIN);
+            link.out.writeUTF(name);
+        }, true);
+    }
+
+    /**
+     * Stores a player's state on the node that owns them.
+     *
+     * @param player The player to store.
+     * @throws IOException If no node could serve the request.
+     */
+    public void save(Player player) throws IOException {
+        route(player.getName(), link -> {
+            link.out.writeByte(GameNode.SAVE);
+            GameNode.writePlayer(link.out, player);
+        }, false);
+    }
+
+    /**
+     * Returns the number of players a node holds.
+     *
+     * @param node The address of the node.
+     * @return The number of players.
+     * @throws IOException If the node cannot be reached.
+     */
+    public int count(String node) throws IOException {
+        GameNode.Link link = link(node);
+        synchronized (link) {
+            link.out.writeByte(GameNode.COUNT);
+            link.out.flush();
+            expect(link, GameNode.OK);
+            return link.in.readInt();
+        }
+    }
+
+    /**
+     * Changes the nodes of the cluster and waits until every node has handed off the players it no longer
+     * owns. Every node on the old or the new ring is told about the change at the same time, so nodes that
+     * are leaving hand off all of their players.
+     *
+     * @param nodes The addresses of the nodes on the new ring.
+     * @throws IOException If a node could not apply the change.
+     */
+    public void changeRing(Collection<String> nodes) throws IOException {
+        ConsistentHashRing next = new ConsistentHashRing(nodes, ring.getVirtualNodes());
+        Set<String> affected = new LinkedHashSet<>(ring.getNodes());
+        affected.addAll(next.getNodes());
+
+        ExecutorService executor = Executors.newFixedThreadPool(affected.size());
+        try {
+            List<Future<Void>> changes = new ArrayList<>();
+            for (String node : affected) {
+                changes.add(executor.submit(() -> {
+                    try (GameNode.Link link = new GameNode.Link(node, RING_CHANGE_TIMEOUT_MILLIS)) {
+                        link.out.writeByte(GameNode.SET_RING);
+                        GameNode.writeNodes(link.out, next.getNodes());
+                        link.out.writeInt(next.getVirtualNodes());
+                        link.out.flush();
+                        expect(link, GameNode.OK);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<Void> change : changes) {
+                change.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while changing the ring.", e);
+        } catch (ExecutionException e) {
+            throw new IOException("A node could not apply the new ring.", e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+        ring = next;
+        for (String node : affected) {
+            if (!next.getNodes().contains(node)) {
+                closeLink(node);
+            }
+        }
+    }
+
+    /**
+     * Closes the connections to every node.
+     */
+    @Override
+    public void close() {
+        for (String node : new ArrayList<>(links.keySet())) {
+            closeLink(node);
+        }
+    }
+
+    /**
+     * Writes a request for a player's owner.
+     */
+    private interface Request {
+        void write(GameNode.Link link) throws IOException;
+    }
+
+    /**
+     * Sends a request to the owner of a player, following MOVED answers by refreshing the ring.
+     */
+    private Object route(String name, Request request, boolean readsPlayer) throws IOException {
+        String node = ring.nodeFor(name);
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            if (node == null) {
+                throw new IOException("The cluster has no nodes.");
+            }
+            GameNode.Link link = link(node);
+            String redirect;
+            synchronized (link) {
+                try {
+                    request.write(link);
+                    link.out.flush();
+                    byte status = link.in.readByte();
+                    if (status == GameNode.OK) {
+                        return readsPlayer ? GameNode.readPlayer(link.in) : null;
+                    }
+                    if (status != GameNode.MOVED && status != GameNode.BUSY) {
+                        throw new IOException(status == GameNode.FAILED ? link.in.readUTF() : "Unexpected status " + status + ".");
+                    }
+                    redirect = status == GameNode.MOVED ? link.in.readUTF() : null;
+                } catch (IOException e) {
+                    closeLink(node);
+                    throw e;
+                }
+            }
+            if (redirect == null) {
+                pause(attempt);
+                continue;
+            }
+            refreshRing(node);
+            if (attempt > 1) {
+                // The nodes still disagree while a ring change is being applied; give it a moment.
+                pause(attempt);
+            }
+            node = redirect;
+        }
+        throw new IOException("Could not find the node that owns " + name + ".");
+    }
+
+    private void refreshRing(String node) throws IOException {
+        GameNode.Link link = link(node);
+        synchronized (link) {
+            link.out.writeByte(GameNode.GET_RING);
+            link.out.flush();
+            expect(link, GameNode.OK);
+            List<String> nodes = GameNode.readNodes(link.in);
+            ring = new ConsistentHashRing(nodes, link.in.readInt());
+        }
+    }
+
+    private GameNode.Link link(String node) throws IOException {
+        GameNode.Link link = links.get(node);
+        if (link == null) {
+            GameNode.Link opened = new GameNode.Link(node);
+            link = links.putIfAbsent(node, opened);
+            if (link == null) {
+                link = opened;
+            } else {
+                opened.close();
+            }
+        }
+        return link;
+    }
+
+    private void closeLink(String node) {
+        GameNode.Link link = links.remove(node);
+        if (link != null) {
+            try {
+                link.close();
+            } catch (IOException e) {
+                // The connection is being discarded anyway.
+            }
+        }
+    }
+
+    private static void expect(GameNode.Link link, byte status) throws IOException {
+        byte actual = link.in.readByte();
+        if (actual != status) {
+            throw new IOException(actual == GameNode.FAILED ? link.in.readUTF() : "Unexpected status " + actual + ".");
+        }
+    }
+
+    private static void pause(int attempt) throws IOException {
+        try {
+            Thread.sleep(RETRY_DELAY_MILLIS * attempt);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the ring to settle.", e);
+        }
+    }
+}
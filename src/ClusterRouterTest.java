@@ -0,0 +1,166 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClusterRouterTest {
+    private static final String LISTENING = "Game node listening on ";
+    private static final int PLAYERS = 300;
+
+    /**
+     * Starts a game node in a new JVM on loopback and returns its address.
+     */
+    private static String launchNode(List<Process> processes) throws IOException {
+        Process process = new ProcessBuilder(Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"), "GameNode", "127.0.0.1:0")
+                .redirectErrorStream(true).start();
+        processes.add(process);
+        BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        String line = output.readLine();
+        assertNotNull(line, "The game node exited before listening.");
+        assertTrue(line.startsWith(LISTENING), line);
+        return line.substring(LISTENING.length(), line.length() - 1);
+    }
+
+    private static int total(ClusterRouter router, List<String> nodes) throws IOException {
+        int total = 0;
+        for (String node : nodes) {
+            total += router.count(node);
+        }
+        return total;
+    }
+
+    @Test
+    public void testPlayersSurviveRingChangesAcrossProcesses() throws IOException {
+        List<Process> processes = new ArrayList<>();
+        try {
+            List<String> nodes = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                nodes.add(launchNode(processes));
+            }
+            List<String> firstThree = nodes.subList(0, 3);
+
+            try (ClusterRouter router = new ClusterRouter(new ArrayList<>())) {
+                router.changeRing(firstThree);
+                for (int i = 0; i < PLAYERS; i++) {
+                    Player player = router.login("Player" + i);
+                    player.setPlayerGold(i);
+                    router.save(player);
+                }
+                assertEquals(0, router.count(nodes.get(3)));
+
+                router.changeRing(nodes);
+                int moved = router.count(nodes.get(3));
+                assertTrue(moved > PLAYERS / 8 && moved < PLAYERS / 2, "Moved " + moved + " players.");
+                assertEquals(PLAYERS, total(router, nodes));
+
+                router.changeRing(nodes.subList(1, 4));
+                assertEquals(0, router.count(nodes.get(0)));
+                assertEquals(PLAYERS, total(router, nodes.subList(1, 4)));
+                for (int i = 0; i < PLAYERS; i++) {
+                    assertEquals(i, router.login("Player" + i).getPlayerGold());
+                }
+            }
+
+            try (ClusterRouter stale = new ClusterRouter(firstThree)) {
+                for (int i = 0; i < PLAYERS; i += 7) {
+                    assertEquals(i, stale.login("Player" + i).getPlayerGold(), "A stale router should follow MOVED.");
+                }
+                assertEquals(new ConsistentHashRing(nodes.subList(1, 4)).getNodes(), stale.getRing().getNodes());
+            }
+        } finally {
+            for (Process process : processes) {
+                process.destroy();
+            }
+        }
+    }
+
+    @Test
+    public void testSavesDuringRingChangeAreKept() throws Exception {
+        List<GameNode> nodes = new ArrayList<>();
+        try {
+            List<String> addresses = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                GameNode node = new GameNode(new InetSocketAddress("127.0.0.1", 0));
+                node.start();
+                nodes.add(node);
+                addresses.add(node.getAddress());
+            }
+            int players = 1000;
+            int[] saved = new int[players];
+            try (ClusterRouter router = new ClusterRouter(new ArrayList<>())) {
+                router.changeRing(addresses.subList(0, 2));
+                for (int i = 0; i < players; i++) {
+                    router.login("Player" + i);
+                }
+
+                AtomicBoolean changed = new AtomicBoolean();
+                AtomicReference<Throwable> failure = new AtomicReference<>();
+                int[] savesDuringChange = new int[1];
+                Thread saver = new Thread(() -> {
+                    try (ClusterRouter saving = new ClusterRouter(addresses.subList(0, 2))) {
+                        for (int round = 1; !changed.get() || round < 3; round++) {
+                            for (int i = 0; i < players; i++) {
+                                saving.save(new Player("Player" + i, 100, 20, round, false, false));
+                                saved[i] = round;
+                                if (!changed.get()) {
+                                    savesDuringChange[0]++;
+                                }
+                            }
+                        }
+                    } catch (Throwable e) {
+                        failure.set(e);
+                    }
+                });
+                saver.start();
+                router.changeRing(addresses);
+                changed.set(true);
+                saver.join();
+                assertNull(failure.get());
+                assertTrue(savesDuringChange[0] > 0);
+
+                assertEquals(players, total(router, addresses));
+                for (int i = 0; i < players; i++) {
+                    assertEquals(saved[i], router.login("Player" + i).getPlayerGold(), "Player" + i + " lost a save.");
+                }
+            }
+        } finally {
+            for (GameNode node : nodes) {
+                node.close();
+            }
+        }
+    }
+
+    @Test
+    public void testHandoffMovesPlayerToNewOwner() throws IOException {
+        try (GameNode first = new GameNode(new InetSocketAddress("127.0.0.1", 0));
+             GameNode second = new GameNode(new InetSocketAddress("127.0.0.1", 0))) {
+            first.start();
+            second.start();
+            List<String> both = Arrays.asList(first.getAddress(), second.getAddress());
+            try (ClusterRouter router = new ClusterRouter(new ArrayList<>())) {
+                router.changeRing(Arrays.asList(first.getAddress()));
+                Player player = router.login("Alice");
+                player.setPlayerGold(77);
+                router.save(player);
+
+                router.changeRing(both);
+                String owner = router.getRing().nodeFor("Alice");
+                assertEquals(77, router.login("Alice").getPlayerGold());
+                assertEquals(1, router.count(owner));
+                assertEquals(1, first.getPlayerCount() + second.getPlayerCount());
+            }
+        }
+    }
+}
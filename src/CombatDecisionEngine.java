@@ -0,0 +1,353 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Picks the best action for each round of a battle with a Monte Carlo tree search that stops after a fixed
+ * time budget.
+ *
+ * A battle state is the player's and the monster's health; everything else about an encounter is fixed when
+ * it starts. Visited states are kept in a transposition table made of flat arrays, so one search tree is
+ * shared by every round of the encounter until it fills up, and the search allocates nothing per iteration.
+ * A round whose state no longer fits starts a fresh tree rather than going unsearched. Chance outcomes
+ * (damage rolls and escape attempts) are sampled with Battle's odds, and each state's actions are picked with UCT.
+ *
+ * An engine serves one encounter at a time and is not thread-safe; give each concurrent encounter its own.
+ */
+class CombatDecisionEngine {
+    private static final int DEFAULT_MAX_STATES = 1024;
+    private static final long DEFAULT_BUDGET_NANOS = 1_000_000;
+    private static final int MAX_DEPTH = 100;
+    private static final double EXPLORATION = 1.4;
+    private static final double WIN_VALUE = 0.7;
+    private static final double HEALTH_VALUE = 0.3;
+    private static final long EMPTY = -1;
+
+    /**
+     * An action the player and their companions can take in one round.
+     */
+    enum Action {
+        /** The player attacks and a Healer companion restores the player's health. */
+        ATTACK,
+        /** The player attacks and a Healer companion strikes the monster instead of healing. */
+        ATTACK_HEALER_STRIKES,
+        /** The player tries to run away. */
+        RUN
+    }
+
+    private static final Action[] ACTIONS = Action.values();
+    private static final int ACTION_COUNT = ACTIONS.length;
+
+    private final long budgetNanos;
+    private final int mask;
+    private final long[] keys;
+    private final int[] visits;
+    private final int[] actionVisits;
+    private final double[] actionValues;
+    private final SplittableRandom random;
+
+    private int states;
+    private int playerDamage;
+    private int monsterDamage;
+    private int referenceHealth;
+    private boolean healer;
+    private boolean warrior;
+    private int lastIterations;
+
+    /**
+     * Constructs a new CombatDecisionEngine that searches for one millisecond per decision.
+     */
+    public CombatDecisionEngine() {
+        this(DEFAULT_BUDGET_NANOS, DEFAULT_MAX_STATES, new SplittableRandom());
+    }
+
+    /**
+     * Constructs a new CombatDecisionEngine.
+     *
+     * @param budgetNanos The time each decision may take, in nanoseconds.
+     * @param maxStates   The most battle states the search tree may hold; rounded up to a power of two.
+     * @param random      The source of the simulated dice rolls.
+     */
+    public CombatDecisionEngine(long budgetNanos, int maxStates, SplittableRandom random) {
+        if (budgetNanos <= 0 || maxStates <= 0) {
+            throw new IllegalArgumentException("The budget and the number of states must be positive.");
+        }
+        int capacity = Integer.highestOneBit(Math.max(2, maxStates - 1)) << 1;
+        this.budgetNanos = budgetNanos;
+        this.mask = capacity - 1;
+        this.keys = new long[capacity];
+        this.visits = new int[capacity];
+        this.actionVisits = new int[capacity * ACTION_COUNT];
+        this.actionValues = new double[capacity * ACTION_COUNT];
+        this.random = random;
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * Prepares the engine for a new encounter and discards the previous search tree.
+     *
+     * @param player  The player entering the battle.
+     * @param monster The monster the player is fighting.
+     */
+    public void startEncounter(Player player, Monster monster) {
+        playerDamage = player.getDamage();
+        monsterDamage = monster.getDamage();
+        referenceHealth = Math.max(1, player.getHealth());
+        healer = player.isHasHealerCompanion();
+        warrior = player.isHasWarriorCompanion();
+        Arrays.fill(keys, EMPTY);
+        states = 0;
+    }
+
+    /**
+     * Searches for the best action in the given battle state, reusing what earlier rounds learned.
+     *
+     * @param playerHealth  The player's current health.
+     * @param monsterHealth The monster's current health.
+     * @return The action with the most promising outcome.
+     */
+    public Action decide(int playerHealth, int monsterHealth) {
+        return best(search(playerHealth, monsterHealth), Action.RUN);
+    }
+
+    /**
+     * Searches for the best way to attack in the given battle state, for when the player has chosen to fight.
+     *
+     * @param playerHealth  The player's current health.
+     * @param monsterHealth The monster's current health.
+     * @return ATTACK or ATTACK_HEALER_STRIKES, whichever is more promising.
+     */
+    public Action decideAttack(int playerHealth, int monsterHealth) {
+        return best(search(playerHealth, monsterHealth), Action.ATTACK_HEALER_STRIKES);
+    }
+
+    /**
+     * Returns the number of simulations run by the last decision.
+     *
+     * @return The number of simulations.
+     */
+    public int getLastIterations() {
+        return lastIterations;
+    }
+
+    /**
+     * Returns the number of battle states in the current search tree.
+     *
+     * @return The number of states.
+     */
+    public int getStates() {
+        return states;
+    }
+
+    /**
+     * Runs simulations from the given state until the budget is spent, checking the clock after every one.
+     * When the tree is too full to hold the state, it is discarded so the search can start over from here.
+     *
+     * @return The slot of the given state.
+     */
+    private int search(int playerHealth, int monsterHealth) {
+        long deadline = System.nanoTime() + budgetNanos;
+        long root = key(playerHealth, monsterHealth);
+        if (find(root) < 0 && isFull()) {
+            Arrays.fill(keys, EMPTY);
+            states = 0;
+        }
+        int iterations = 0;
+        do {
+            simulate(playerHealth, monsterHealth, 0);
+            iterations++;
+        } while (System.nanoTime() < deadline);
+        lastIterations = iterations;
+        return find(root);
+    }
+
+    /**
+     * Returns the legal action tried most often in a state, considering only actions up to the given one.
+     */
+    private Action best(int slot, Action last) {
+        Action best = Action.ATTACK;
+        if (slot < 0) {
+            return best;
+        }
+        int mostVisits = -1;
+        for (int a = 0; a <= last.ordinal(); a++) {
+            int count = actionVisits[slot * ACTION_COUNT + a];
+            if (isLegal(a) && count > mostVisits) {
+                mostVisits = count;
+                best = ACTIONS[a];
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Plays out one simulated battle from the given state and backs up its value.
+     *
+     * @return The value of the outcome, between 0 for a defeat and 1 for a flawless victory.
+     */
+    private double simulate(int playerHealth, int monsterHealth, int depth) {
+        if (depth >= MAX_DEPTH) {
+            return estimate(playerHealth, monsterHealth);
+        }
+        long key = key(playerHealth, monsterHealth);
+        int slot = find(key);
+        if (slot < 0) {
+            insert(key);
+            return rollout(playerHealth, monsterHealth, depth);
+        }
+
+        int action = select(slot);
+        double value;
+        if (action == Action.RUN.ordinal()) {
+            if (random.nextDouble() < Battle.ESCAPE_CHANCE) {
+                value = escapeValue(playerHealth);
+            } else {
+                int nextPlayerHealth = playerHealth - random.nextInt(monsterDamage);
+                value = nextPlayerHealth <= 0 ? 0 : simulate(nextPlayerHealth, monsterHealth, depth + 1);
+            }
+        } else {
+            int nextMonsterHealth = monsterHealth - random.nextInt(playerDamage);
+            int nextPlayerHealth = playerHealth - random.nextInt(monsterDamage);
+            if (healer && action == Action.ATTACK.ordinal()) {
+                nextPlayerHealth += Battle.HEALER_HEAL;
+            } else if (healer) {
+                nextMonsterHealth -= random.nextInt(Battle.HEALER_STRIKE_MIN, Battle.HEALER_STRIKE_MAX + 1);
+            }
+            if (warrior) {
+                nextMonsterHealth -= random.nextInt(Battle.WARRIOR_EXTRA_DAMAGE_MIN, Battle.WARRIOR_EXTRA_DAMAGE_MAX + 1);
+            }
+            value = outcome(nextPlayerHealth, nextMonsterHealth, depth);
+        }
+
+        visits[slot]++;
+        actionVisits[slot * ACTION_COUNT + action]++;
+        actionValues[slot * ACTION_COUNT + action] += value;
+        return value;
+    }
+
+    private double outcome(int playerHealth, int monsterHealth, int depth) {
+        if (playerHealth <= 0) {
+            return 0;
+        }
+        if (monsterHealth <= 0) {
+            return winValue(playerHealth);
+        }
+        return simulate(playerHealth, monsterHealth, depth + 1);
+    }
+
+    /**
+     * Picks the action to try in a state with UCT, trying every legal action once first.
+     */
+    private int select(int slot) {
+        double logVisits = Math.log(visits[slot] + 1);
+        int best = Action.ATTACK.ordinal();
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (int a = 0; a < ACTION_COUNT; a++) {
+            if (!isLegal(a)) {
+                continue;
+            }
+            int count = actionVisits[slot * ACTION_COUNT + a];
+            if (count == 0) {
+                return a;
+            }
+            double score = actionValues[slot * ACTION_COUNT + a] / count + EXPLORATION * Math.sqrt(logVisits / count);
+            if (score > bestScore) {
+                bestScore = score;
+                best = a;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Finishes a battle with a simple policy: run when badly hurt, otherwise attack and heal when below half health.
+     */
+    private double rollout(int playerHealth, int monsterHealth, int depth) {
+        for (int round = depth; round < MAX_DEPTH; round++) {
+            if (playerHealth * 4 < referenceHealth && monsterHealth * 2 > playerHealth) {
+                if (random.nextDouble() < Battle.ESCAPE_CHANCE) {
+                    return escapeValue(playerHealth);
+                }
+                playerHealth -= random.nextInt(monsterDamage);
+            } else {
+                monsterHealth -= random.nextInt(playerDamage);
+                playerHealth -= random.nextInt(monsterDamage);
+                if (healer && playerHealth * 2 < referenceHealth) {
+                    playerHealth += Battle.HEALER_HEAL;
+                } else if (healer) {
+                    monsterHealth -= random.nextInt(Battle.HEALER_STRIKE_MIN, Battle.HEALER_STRIKE_MAX + 1);
+                }
+                if (warrior) {
+                    monsterHealth -= random.nextInt(Battle.WARRIOR_EXTRA_DAMAGE_MIN, Battle.WARRIOR_EXTRA_DAMAGE_MAX + 1);
+                }
+                if (playerHealth > 0 && monsterHealth <= 0) {
+                    return winValue(playerHealth);
+                }
+            }
+            if (playerHealth <= 0) {
+                return 0;
+            }
+        }
+        return estimate(playerHealth, monsterHealth);
+    }
+
+    private double winValue(int playerHealth) {
+        return WIN_VALUE + HEALTH_VALUE * Math.min(1.0, (double) playerHealth / referenceHealth);
+    }
+
+    private double escapeValue(int playerHealth) {
+        return HEALTH_VALUE * Math.min(1.0, (double) playerHealth / referenceHealth);
+    }
+
+    private double estimate(int playerHealth, int monsterHealth) {
+        return playerHealth > monsterHealth ? winValue(playerHealth) / 2 : escapeValue(playerHealth);
+    }
+
+    private boolean isLegal(int action) {
+        return healer || action != Action.ATTACK_HEALER_STRIKES.ordinal();
+    }
+
+    private static long key(int playerHealth, int monsterHealth) {
+        return ((long) playerHealth << 32) | (monsterHealth & 0xFFFFFFFFL);
+    }
+
+    private int find(long key) {
+        int slot = hash(key);
+        for (int probes = 0; probes <= mask; probes++) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            if (keys[slot] == EMPTY) {
+                return -1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Adds a state to the tree unless the tree is full.
+     */
+    private void insert(long key) {
+        if (isFull()) {
+            return;
+        }
+        int slot = hash(key);
+        while (keys[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        visits[slot] = 0;
+        Arrays.fill(actionVisits, slot * ACTION_COUNT, (slot + 1) * ACTION_COUNT, 0);
+        Arrays.fill(actionValues, slot * ACTION_COUNT, (slot + 1) * ACTION_COUNT, 0);
+        states++;
+    }
+
+    private boolean isFull() {
+        return states * 4 >= (mask + 1) * 3;
+    }
+
+    private int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,69 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CombatDecisionEngineTest {
+    private static final long BUDGET_NANOS = 2_000_000;
+
+    @Test
+    public void testRunsFromHopelessFight() {
+        CombatDecisionEngine engine = new CombatDecisionEngine(BUDGET_NANOS, 1024, new SplittableRandom(1));
+        Player player = new Player("Alice", 1, 20, 0, false, false);
+        Monster dragon = new Monster("Dragon", 100, 20, 50);
+        engine.startEncounter(player, dragon);
+
+        assertEquals(CombatDecisionEngine.Action.RUN, engine.decide(player.getHealth(), dragon.getHealth()));
+    }
+
+    @Test
+    public void testAttacksWeakMonster() {
+        CombatDecisionEngine engine = new CombatDecisionEngine(BUDGET_NANOS, 1024, new SplittableRandom(2));
+        Player player = new Player("Bob", 100, 50, 0, false, true);
+        Monster goblin = new Monster("Goblin", 30, 5, 10);
+        engine.startEncounter(player, goblin);
+
+        assertEquals(CombatDecisionEngine.Action.ATTACK, engine.decide(player.getHealth(), goblin.getHealth()));
+    }
+
+    @Test
+    public void testHealerOnlyStrikesWithHealer() {
+        CombatDecisionEngine engine = new CombatDecisionEngine(BUDGET_NANOS, 1024, new SplittableRandom(3));
+        Player player = new Player("Eve", 100, 20, 0, false, false);
+        Monster orc = new Monster("Orc", 50, 10, 20);
+        engine.startEncounter(player, orc);
+
+        assertEquals(CombatDecisionEngine.Action.ATTACK, engine.decideAttack(player.getHealth(), orc.getHealth()));
+    }
+
+    @Test
+    public void testDecisionStaysWithinBudget() {
+        CombatDecisionEngine engine = new CombatDecisionEngine(1_000_000, 1024, new SplittableRandom(4));
+        Player player = new Player("Dan", 100, 20, 0, true, true);
+        Monster dragon = new Monster("Dragon", 100, 20, 50);
+        engine.startEncounter(player, dragon);
+
+        long start = System.nanoTime();
+        engine.decide(100, 100);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsedMillis < 50, "A decision took " + elapsedMillis + " ms.");
+        assertTrue(engine.getLastIterations() > 0);
+        assertTrue(engine.getStates() > 0);
+    }
+
+    @Test
+    public void testLaterRoundsSearchAfterTreeFills() {
+        // A tree of 64 slots holds 48 states, which a first round of 20 ms fills even on a cold JVM.
+        CombatDecisionEngine engine = new CombatDecisionEngine(20_000_000, 64, new SplittableRandom(5));
+        Player player = new Player("Fay", 100, 20, 0, false, false);
+        Monster dragon = new Monster("Dragon", 100, 20, 50);
+        engine.startEncounter(player, dragon);
+
+        engine.decide(100, 100);
+        assertEquals(48, engine.getStates(), "The first round should fill the tree.");
+
+        assertEquals(CombatDecisionEngine.Action.RUN, engine.decide(3, 97));
+    }
+}
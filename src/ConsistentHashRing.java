@@ -0,0 +1,126 @@
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Assigns keys such as player names to the nodes of a cluster with consistent hashing.
+ *
+ * Every node is placed on a 64-bit ring at many points, its virtual nodes, and a key belongs to the first
+ * virtual node at or after the key's own position. Adding or removing a node therefore only moves the keys
+ * next to its virtual nodes, about one node's share, and the virtual nodes spread every node's share evenly
+ * around the ring. A ring depends only on its set of node names, so every process that knows the same nodes
+ * computes the same owners.
+ *
+ * Rings are immutable; changing the membership creates a new ring.
+ */
+class ConsistentHashRing {
+    static final int DEFAULT_VIRTUAL_NODES = 128;
+
+    private final List<String> nodes;
+    private final int virtualNodes;
+    private final long[] positions;
+    private final String[] owners;
+
+    /**
+     * Constructs a new ConsistentHashRing with 128 virtual nodes per node.
+     *
+     * @param nodes The names of the nodes, such as their addresses.
+     */
+    public ConsistentHashRing(Collection<String> nodes) {
+        this(nodes, DEFAULT_VIRTUAL_NODES);
+    }
+
+    /**
+     * Constructs a new ConsistentHashRing.
+     *
+     * @param nodes        The names of the nodes, such as their addresses.
+     * @param virtualNodes The number of points each node has on the ring.
+     */
+    public ConsistentHashRing(Collection<String> nodes, int virtualNodes) {
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("The number of virtual nodes must be positive.");
+        }
+        this.nodes = Collections.unmodifiableList(new ArrayList<>(new TreeSet<>(nodes)));
+        this.virtualNodes = virtualNodes;
+
+        int points = this.nodes.size() * virtualNodes;
+        long[][] ring = new long[points][];
+        for (int n = 0; n < this.nodes.size(); n++) {
+            for (int v = 0; v < virtualNodes; v++) {
+                ring[n * virtualNodes + v] = new long[]{hash(this.nodes.get(n) + "#" + v), n};
+            }
+        }
+        Arrays.sort(ring, (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        this.positions = new long[points];
+        this.owners = new String[points];
+        for (int i = 0; i < points; i++) {
+            positions[i] = ring[i][0];
+            owners[i] = this.nodes.get((int) ring[i][1]);
+        }
+    }
+
+    /**
+     * Returns the node a key belongs to.
+     *
+     * @param key The key, such as a player name.
+     * @return The name of the owning node, or null if the ring has no nodes.
+     */
+    public String nodeFor(String key) {
+        if (positions.length == 0) {
+            return null;
+        }
+        int index = Arrays.binarySearch(positions, hash(key));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == positions.length ? 0 : index];
+    }
+
+    /**
+     * Returns the nodes on the ring, sorted by name.
+     *
+     * @return The node names.
+     */
+    public List<String> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Returns the number of points each node has on the ring.
+     *
+     * @return The number of virtual nodes per node.
+     */
+    public int getVirtualNodes() {
+        return virtualNodes;
+    }
+
+    /**
+     * Hashes a string to a position on the ring with 64-bit FNV-1a followed by the MurmurHash3 finalizer,
+     * which spreads similar names such as "node#1" and "node#2" far apart.
+     *
+     * @param key The string to hash.
+     * @return The position of the string on the ring.
+     */
+    static long hash(String key) {
+        long h = 0xCBF29CE484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xFF;
+            h *= 0x100000001B3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        return "ConsistentHashRing" + nodes;
+    }
+}
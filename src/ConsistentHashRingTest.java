@@ -0,0 +1,55 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConsistentHashRingTest {
+    private static final List<String> NODES = Arrays.asList("127.0.0.1:7001", "127.0.0.1:7002", "127.0.0.1:7003", "127.0.0.1:7004");
+
+    @Test
+    public void testOwnersDoNotDependOnNodeOrder() {
+        ConsistentHashRing ring = new ConsistentHashRing(NODES);
+        ConsistentHashRing reversed = new ConsistentHashRing(Arrays.asList("127.0.0.1:7004", "127.0.0.1:7003",
+                "127.0.0.1:7002", "127.0.0.1:7001"));
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(ring.nodeFor("Player" + i), reversed.nodeFor("Player" + i));
+        }
+    }
+
+    @Test
+    public void testPlayersAreSpreadEvenly() {
+        ConsistentHashRing ring = new ConsistentHashRing(NODES);
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 40_000; i++) {
+            counts.merge(ring.nodeFor("Player" + i), 1, Integer::sum);
+        }
+        assertEquals(4, counts.size());
+        for (int count : counts.values()) {
+            assertTrue(count > 7_000 && count < 13_000, "Unbalanced share: " + counts);
+        }
+    }
+
+    @Test
+    public void testAddingNodeOnlyMovesItsShare() {
+        ConsistentHashRing before = new ConsistentHashRing(NODES.subList(0, 3));
+        ConsistentHashRing after = new ConsistentHashRing(NODES);
+        int moved = 0;
+        for (int i = 0; i < 40_000; i++) {
+            String name = "Player" + i;
+            if (!before.nodeFor(name).equals(after.nodeFor(name))) {
+                assertEquals("127.0.0.1:7004", after.nodeFor(name), "Keys may only move to the new node.");
+                moved++;
+            }
+        }
+        assertTrue(moved > 7_000 && moved < 13_000, "Moved " + moved + " keys.");
+    }
+
+    @Test
+    public void testEmptyRingOwnsNothing() {
+        assertNull(new ConsistentHashRing(Arrays.asList()).nodeFor("Alice"));
+    }
+}
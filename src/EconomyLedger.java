@@ -0,0 +1,329 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * A double-entry ledger of every piece of gold that enters or leaves the economy.
+ *
+ * Gold is minted when a monster is defeated and sunk when the player buys from the shop. Each posting moves
+ * gold between a player's account and the mint or the sink, so the balances of all accounts always add up
+ * to zero. Recording a posting never takes a lock: global totals are kept in a buffer owned by the calling
+ * thread and only summed up when the ledger is audited.
+ *
+ * An audit checks that the totals agree with the accounts and that every player holds exactly the gold the
+ * ledger says they should, which catches gold created or destroyed outside of the ledger. Because audits run
+ * concurrently with the game, a mismatch is only reported once two audits in a row have found the same
+ * discrepancy, the difference between the gold a player holds and the gold the ledger expects. A posting in
+ * flight causes a discrepancy that is gone by the next audit, while duplicated gold stays, however much the
+ * player earns and spends in between.
+ *
+ * Close the account of a player who leaves, so that a long-running server does not keep every player it
+ * has ever seen.
+ */
+class EconomyLedger implements AutoCloseable {
+    private static final int MINTED = 0;
+    private static final int SUNK = 1;
+    private static final int MINTS = 2;
+    private static final int SINKS = 3;
+    private static final int STRIPE_FIELDS = 4;
+
+    private final ConcurrentLinkedQueue<AtomicLongArray> stripes = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<AtomicLongArray> stripe = ThreadLocal.withInitial(this::newStripe);
+    private final ConcurrentHashMap<Player, Account> accounts = new ConcurrentHashMap<>();
+    private final AtomicLong closedBalance = new AtomicLong();
+    private final long maxMintPerAudit;
+
+    private final Map<Object, Long> suspects = new HashMap<>();
+    private long mintedAtLastAudit;
+    private ScheduledExecutorService auditor;
+
+    /**
+     * Constructs a new EconomyLedger that does not limit how fast gold may be minted.
+     */
+    public EconomyLedger() {
+        this(Long.MAX_VALUE);
+    }
+
+    /**
+     * Constructs a new EconomyLedger that reports inflation when more gold is minted between two audits
+     * than the given limit.
+     *
+     * @param maxMintPerAudit The most gold that may be minted between two audits.
+     */
+    public EconomyLedger(long maxMintPerAudit) {
+        this.maxMintPerAudit = maxMintPerAudit;
+    }
+
+    /**
+     * Opens an account for a player, taking their current gold as the opening balance.
+     * Opening an account for a player who already has one has no effect.
+     *
+     * @param player The player to open an account for.
+     */
+    public void openAccount(Player player) {
+        accounts.computeIfAbsent(player, p -> new Account(p, p.getPlayerGold()));
+    }
+
+    /**
+     * Closes the account of a player who has left the game. The gold the account gained and lost stays in
+     * the totals that are audited, but the player is no longer checked or kept.
+     *
+     * @param player The player whose account to close.
+     */
+    public void closeAccount(Player player) {
+        Account account = accounts.remove(player);
+        if (account != null) {
+            closedBalance.addAndGet(account.credited.get() - account.debited.get());
+        }
+    }
+
+    /**
+     * Returns the number of open accounts.
+     *
+     * @return The number of open accounts.
+     */
+    public int getAccountCount() {
+        return accounts.size();
+    }
+
+    /**
+     * Records gold that was created and given to a player, such as a monster's gold reward.
+     * Call this after the gold has been added to the player.
+     *
+     * @param player The player who received the gold.
+     * @param amount The amount of gold created.
+     */
+    public void recordMint(Player player, int amount) {
+        account(player, amount).credited.addAndGet(amount);
+        AtomicLongArray buffer = stripe.get();
+        buffer.lazySet(MINTED, buffer.get(MINTED) + amount);
+        buffer.lazySet(MINTS, buffer.get(MINTS) + 1);
+    }
+
+    /**
+     * Records gold that a player spent and that left the economy, such as a shop purchase.
+     * Call this after the gold has been taken from the player.
+     *
+     * @param player The player who spent the gold.
+     * @param amount The amount of gold spent.
+     */
+    public void recordSink(Player player, int amount) {
+        account(player, -amount).debited.addAndGet(amount);
+        AtomicLongArray buffer = stripe.get();
+        buffer.lazySet(SUNK, buffer.get(SUNK) + amount);
+        buffer.lazySet(SINKS, buffer.get(SINKS) + 1);
+    }
+
+    /**
+     * Returns the total amount of gold minted so far.
+     *
+     * @return The total gold minted.
+     */
+    public long getTotalMinted() {
+        return total(MINTED);
+    }
+
+    /**
+     * Returns the total amount of gold sunk so far.
+     *
+     * @return The total gold sunk.
+     */
+    public long getTotalSunk() {
+        return total(SUNK);
+    }
+
+    /**
+     * Checks that gold has been conserved since the previous audit.
+     *
+     * @return A report of the totals and of every problem found.
+     */
+    public synchronized AuditReport audit() {
+        long minted = getTotalMinted();
+        long sunk = getTotalSunk();
+        List<String> problems = new ArrayList<>();
+        Map<Object, Long> seen = new HashMap<>();
+
+        long accountTotal = closedBalance.get();
+        for (Account account : accounts.values()) {
+            long net = account.credited.get() - account.debited.get();
+            accountTotal += net;
+            long expected = account.openingBalance + net;
+            long actual = account.player.getPlayerGold();
+            if (expected != actual && confirm(account, actual - expected, seen)) {
+                problems.add(account.player.getName() + " holds " + actual + " gold but the ledger expects "
+                        + expected + ".");
+            }
+        }
+        if (accountTotal != minted - sunk && confirm(this, accountTotal - (minted - sunk), seen)) {
+            problems.add("Accounts hold " + accountTotal + " gold but " + minted + " was minted and "
+                    + sunk + " was sunk.");
+        }
+        suspects.clear();
+        suspects.putAll(seen);
+
+        long mintedSinceLastAudit = minted - mintedAtLastAudit;
+        mintedAtLastAudit = minted;
+        if (mintedSinceLastAudit > maxMintPerAudit) {
+            problems.add(mintedSinceLastAudit + " gold was minted since the last audit, more than the limit of "
+                    + maxMintPerAudit + ".");
+        }
+        return new AuditReport(minted, sunk, mintedSinceLastAudit, problems);
+    }
+
+    /**
+     * Starts auditing the ledger in the background at a fixed rate.
+     *
+     * @param period   The time between two audits.
+     * @param unit     The unit of the period.
+     * @param listener Receives every report that found a problem.
+     */
+    public synchronized void startAuditor(long period, TimeUnit unit, Consumer<AuditReport> listener) {
+        if (auditor != null) {
+            throw new IllegalStateException("The auditor is already running.");
+        }
+        auditor = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "economy-auditor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        auditor.scheduleAtFixedRate(() -> {
+            AuditReport report = audit();
+            if (!report.isClean()) {
+                listener.accept(report);
+            }
+        }, period, period, unit);
+    }
+
+    /**
+     * Stops the background auditor, if it is running.
+     */
+    @Override
+    public synchronized void close() {
+        if (auditor != null) {
+            auditor.shutdownNow();
+            auditor = null;
+        }
+    }
+
+    /**
+     * Returns the account of a player, opening it if the player has none. A lazily opened account assumes
+     * the posting being recorded is the only change to the player's gold it has not seen.
+     */
+    private Account account(Player player, int change) {
+        Account account = accounts.get(player);
+        if (account == null) {
+            account = accounts.computeIfAbsent(player, p -> new Account(p, p.getPlayerGold() - (long) change));
+        }
+        return account;
+    }
+
+    /**
+     * Remembers a discrepancy and checks whether the previous audit found the same one.
+     */
+    private boolean confirm(Object subject, long discrepancy, Map<Object, Long> seen) {
+        seen.put(subject, discrepancy);
+        Long previous = suspects.get(subject);
+        return previous != null && previous == discrepancy;
+    }
+
+    private AtomicLongArray newStripe() {
+        AtomicLongArray buffer = new AtomicLongArray(STRIPE_FIELDS);
+        stripes.add(buffer);
+        return buffer;
+    }
+
+    private long total(int field) {
+        long total = 0;
+        for (AtomicLongArray buffer : stripes) {
+            total += buffer.get(field);
+        }
+        return total;
+    }
+
+    /**
+     * The gold a single player has received from the mint and paid to the sink.
+     */
+    private static final class Account {
+        private final Player player;
+        private final long openingBalance;
+        private final AtomicLong credited = new AtomicLong();
+        private final AtomicLong debited = new AtomicLong();
+
+        Account(Player player, long openingBalance) {
+            this.player = player;
+            this.openingBalance = openingBalance;
+        }
+    }
+
+    /**
+     * The outcome of a single audit.
+     */
+    static final class AuditReport {
+        private final long totalMinted;
+        private final long totalSunk;
+        private final long mintedSinceLastAudit;
+        private final List<String> problems;
+
+        AuditReport(long totalMinted, long totalSunk, long mintedSinceLastAudit, List<String> problems) {
+            this.totalMinted = totalMinted;
+            this.totalSunk = totalSunk;
+            this.mintedSinceLastAudit = mintedSinceLastAudit;
+            this.problems = Collections.unmodifiableList(problems);
+        }
+
+        /**
+         * Returns the total amount of gold minted when the audit ran.
+         *
+         * @return The total gold minted.
+         */
+        public long getTotalMinted() {
+            return totalMinted;
+        }
+
+        /**
+         * Returns the total amount of gold sunk when the audit ran.
+         *
+         * @return The total gold sunk.
+         */
+        public long getTotalSunk() {
+            return totalSunk;
+        }
+
+        /**
+         * Returns the amount of gold minted since the previous audit.
+         *
+         * @return The gold minted since the previous audit.
+         */
+        public long getMintedSinceLastAudit() {
+            return mintedSinceLastAudit;
+        }
+
+        /**
+         * Returns a description of every problem the audit found.
+         *
+         * @return The problems found, empty if the economy is sound.
+         */
+        public List<String> getProblems() {
+            return problems;
+        }
+
+        /**
+         * Check if the audit found no problems.
+         *
+         * @return True if no problems were found; otherwise, false.
+         */
+        public boolean isClean() {
+            return problems.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EconomyLedgerTest {
+
+    @Test
+    public void testMintAndSinkBalance() {
+        EconomyLedger ledger = new EconomyLedger();
+        Player player = new Player("Alice", 100, 20, 10, false, false);
+        Shop shop = new Shop();
+        ledger.openAccount(player);
+
+        player.addGold(50);
+        ledger.recordMint(player, 50);
+        ShopItem weapon = shop.purchaseWeapon(player, 0);
+        ledger.recordSink(player, weapon.getPrice());
+
+        EconomyLedger.AuditReport report = ledger.audit();
+        assertTrue(report.isClean());
+        assertEquals(50, report.getTotalMinted());
+        assertEquals(30, report.getTotalSunk());
+        assertTrue(ledger.audit().isClean());
+    }
+
+    @Test
+    public void testUnrecordedGoldIsReported() {
+        EconomyLedger ledger = new EconomyLedger();
+        Player player = new Player("Bob", 100, 20, 0, false, false);
+        ledger.openAccount(player);
+
+        player.setPlayerGold(1000);
+
+        assertTrue(ledger.audit().isClean(), "A single mismatch may be a posting in flight.");
+        EconomyLedger.AuditReport report = ledger.audit();
+        assertFalse(report.isClean());
+        assertTrue(report.getProblems().get(0).contains("Bob holds 1000 gold"));
+    }
+
+    @Test
+    public void testDuplicatedGoldIsReportedWhileThePlayerKeepsEarning() {
+        EconomyLedger ledger = new EconomyLedger();
+        Player player = new Player("Mallory", 100, 20, 0, false, false);
+        ledger.openAccount(player);
+
+        player.setPlayerGold(500);
+        assertTrue(ledger.audit().isClean());
+        ledger.recordMint(player, player.addGold(10));
+        EconomyLedger.AuditReport report = ledger.audit();
+        assertFalse(report.isClean());
+        assertTrue(report.getProblems().get(0).contains("Mallory holds 510 gold but the ledger expects 10"));
+    }
+
+    @Test
+    public void testClosedAccountsAreForgottenButStillBalance() {
+        EconomyLedger ledger = new EconomyLedger();
+        Player alice = new Player("Alice", 100, 20, 0, false, false);
+        Player bob = new Player("Bob", 100, 20, 0, false, false);
+        ledger.openAccount(alice);
+        ledger.openAccount(bob);
+        ledger.recordMint(alice, alice.addGold(40));
+        ledger.recordMint(bob, bob.addGold(25));
+
+        ledger.closeAccount(alice);
+        ledger.closeAccount(alice);
+        assertEquals(1, ledger.getAccountCount());
+        alice.setPlayerGold(1000);
+        assertTrue(ledger.audit().isClean());
+        assertTrue(ledger.audit().isClean());
+    }
+
+    @Test
+    public void testInflationLimit() {
+        EconomyLedger ledger = new EconomyLedger(100);
+        Player player = new Player("Eve", 100, 20, 0, false, false);
+
+        player.addGold(80);
+        ledger.recordMint(player, 80);
+        assertTrue(ledger.audit().isClean());
+
+        player.addGold(120);
+        ledger.recordMint(player, 120);
+        EconomyLedger.AuditReport report = ledger.audit();
+        assertEquals(120, report.getMintedSinceLastAudit());
+        assertFalse(report.isClean());
+    }
+
+    @Test
+    public void testConcurrentPostings() throws InterruptedException {
+        EconomyLedger ledger = new EconomyLedger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Player player = new Player("Player" + t, 100, 20, 0, false, false);
+            ledger.openAccount(player);
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    player.addGold(10);
+                    ledger.recordMint(player, 10);
+                    player.setPlayerGold(player.getPlayerGold() - 3);
+                    ledger.recordSink(player, 3);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(400000, ledger.getTotalMinted());
+        assertEquals(120000, ledger.getTotalSunk());
+        assertTrue(ledger.audit().isClean());
+        assertTrue(ledger.audit().isClean());
+    }
+}
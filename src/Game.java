@@ -0,0 +1,405 @@
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ * The rules of the game, played one menu choice at a time.
+ *
+ * A game keeps the menu it is waiting on as explicit state instead of blocking for input, so the same rules
+ * serve the console, which reads each choice from a Scanner, and network sessions, which receive choices as
+ * messages. Everything the player should see is handed to a narration callback, one message at a time,
+ * except battles, which the game plays through a Battle that writes its narration to a stream. Everything
+ * that happens to the player is reported to the registered listeners.
+ *
+ * A game is not thread-safe; only one thread may drive it at a time.
+ */
+class Game {
+    /**
+     * The menu the game is waiting on an answer for.
+     */
+    enum State {
+        MAIN_MENU, ROOM, BATTLE, RECRUIT, SHOP, SHOP_WEAPONS, SHOP_ARMOR, FINISHED
+    }
+
+    private final Player player;
+    private final Monster[] monsters;
+    private final Shop shop;
+    private final Room room;
+    private final EconomyLedger ledger;
+    private final Random random;
+    private final Consumer<String> narration;
+    private final Battle battle;
+    private final List<GameEventListener> listeners = new ArrayList<>();
+    private final GameEvent event = new GameEvent(null, null, null, null, 0, 0, 0);
+    private CombatDecisionEngine decisionEngine;
+
+    private State state = State.MAIN_MENU;
+    private Monster monster;
+    private String currentRoom;
+
+    /**
+     * Constructs a new Game and opens the player's account in the ledger.
+     *
+     * @param player          The player in the game.
+     * @param monsters        The monsters the player can encounter.
+     * @param shop            The shop where the player can buy weapons and armor.
+     * @param room            The rooms the player can explore.
+     * @param ledger          The ledger that records the gold the player earns and spends.
+     * @param random          The random number generator used for rooms, monsters and damage rolls.
+     * @param narration       Receives every message the player should see outside of battles.
+     * @param battleNarration The stream battles are narrated to. It is flushed before every message that
+     *                        follows a battle's narration, so both may lead to the same place.
+     */
+    public Game(Player player, Monster[] monsters, Shop shop, Room room, EconomyLedger ledger, Random random,
+                Consumer<String> narration, OutputStream battleNarration) {
+        this.player = player;
+        this.monsters = monsters;
+        this.shop = shop;
+        this.room = room;
+        this.ledger = ledger;
+        this.random = random;
+        this.narration = narration;
+        this.battle = new Battle(random, battleNarration);
+        ledger.openAccount(player);
+    }
+
+    /**
+     * Lets a decision engine advise the player and direct the Healer companion in battle.
+     *
+     * @param decisionEngine The engine to consult every round, or null to let companions act as usual.
+     */
+    public void setDecisionEngine(CombatDecisionEngine decisionEngine) {
+        this.decisionEngine = decisionEngine;
+    }
+
+    /**
+     * Registers a listener for everything that happens to the player, including purchases in the shop.
+     *
+     * @param listener The listener to call after every event.
+     */
+    public void addListener(GameEventListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Tracks the player's progress through the given quests and announces every quest they complete.
+     *
+     * @param book The quests the player can complete.
+     * @return The tracker holding the player's progress.
+     */
+    public QuestTracker trackQuests(QuestBook book) {
+        QuestTracker tracker = new QuestTracker(book, quest -> say("\nQuest complete: " + quest.getName() + "!"));
+        addListener(tracker);
+        return tracker;
+    }
+
+    /**
+     * Returns the menu the game is currently waiting on.
+     *
+     * @return The current state of the game.
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Returns the player of this game.
+     *
+     * @return The player.
+     */
+    public Player getPlayer() {
+        return player;
+    }
+
+    /**
+     * Greets the player and shows the main menu.
+     */
+    public void start() {
+        say("Hello, " + player.getName() + "! Your journey begins now.");
+        showMainMenu();
+    }
+
+    /**
+     * Advances the game by the player's answer to the current menu. Once the game is finished, answers are
+     * ignored.
+     *
+     * @param choice The number the player chose, or -1 if they entered something else.
+     */
+    public void handle(int choice) {
+        switch (state) {
+            case MAIN_MENU:
+                mainMenu(choice);
+                break;
+            case ROOM:
+                room(choice);
+                break;
+            case BATTLE:
+                battle(choice);
+                break;
+            case RECRUIT:
+                recruit(choice);
+                break;
+            case SHOP:
+                shop(choice);
+                break;
+            case SHOP_WEAPONS:
+                buyWeapon(choice);
+                break;
+            case SHOP_ARMOR:
+                buyArmor(choice);
+                break;
+            default:
+                return;
+        }
+
+        if (state != State.FINISHED && player.getHealth() <= 0) {
+            say("Game Over! Your journey has come to an end.");
+            quit();
+        }
+    }
+
+    /**
+     * Ends the game and closes the player's account in the ledger. Quitting a finished game does nothing.
+     */
+    public void quit() {
+        if (state == State.FINISHED) {
+            return;
+        }
+        state = State.FINISHED;
+        ledger.closeAccount(player);
+    }
+
+    private void say(String text) {
+        battle.flush();
+        narration.accept(text);
+    }
+
+    /**
+     * Tells every listener about an event in the room the player last explored. Every event is reported on
+     * the same object, so nothing is created per event even with listeners registered.
+     *
+     * @param type    What happened.
+     * @param subject The monster, companion or item involved, or null if none.
+     * @param damage  The damage dealt or taken, or 0.
+     * @param gold    The gold gained or spent, or 0.
+     */
+    private void emit(GameEvent.Type type, String subject, int damage, int gold) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        event.set(type, player.getName(), currentRoom, subject, damage, player.getHealth(), gold);
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).onEvent(event);
+        }
+    }
+
+    private void showMainMenu() {
+        state = State.MAIN_MENU;
+        say("\nWhat would you like to do?\n1. Explore\n2. Check stats\n3. Recruit a companion\n4. Visit the shop\n5. Quit game");
+    }
+
+    private void mainMenu(int choice) {
+        switch (choice) {
+            case 1:
+                currentRoom = room.getRooms()[random.nextInt(room.getRooms().length)];
+                emit(GameEvent.Type.EXPLORE, null, 0, 0);
+                say("\nYou are in a " + currentRoom + ". What would you like to do?\n1. Attack monsters\n2. Run away");
+                state = State.ROOM;
+                return;
+            case 2:
+                say(player.describeStats());
+                break;
+            case 3:
+                say("\nYou found someone willing to join your journey!");
+                if (player.hasMaxCompanions()) {
+                    say("You already have two companions. You cannot recruit more.");
+                    break;
+                }
+                say("Choose a companion to recruit:\n1. Healer (Restores health)\n2. Warrior (Deals extra damage)");
+                state = State.RECRUIT;
+                return;
+            case 4:
+                say("\nWelcome to the Shop! What would you like to buy?\n1. Weapons\n2. Armor\n3. Exit shop");
+                state = State.SHOP;
+                return;
+            case 5:
+                say("Thanks for playing! Goodbye!");
+                quit();
+                return;
+            default:
+                say("Invalid choice. Try again.");
+        }
+        showMainMenu();
+    }
+
+    private void room(int choice) {
+        switch (choice) {
+            case 1:
+                monster = monsters[random.nextInt(monsters.length)];
+                emit(GameEvent.Type.ENCOUNTER, monster.getName(), 0, 0);
+                battle.start(player, monster);
+                if (decisionEngine != null) {
+                    decisionEngine.startEncounter(player, monster);
+                }
+                if (!battleOver()) {
+                    showBattleMenu();
+                }
+                return;
+            case 2:
+                int playerHealth = player.getHealth();
+                Monster blocker = battle.fleeRoom(player, monsters);
+                if (blocker == null) {
+                    emit(GameEvent.Type.ESCAPE, null, 0, 0);
+                } else {
+                    emit(GameEvent.Type.BLOCKED, blocker.getName(), playerHealth - player.getHealth(), 0);
+                }
+                break;
+            default:
+                say("Invalid choice. Try again.");
+        }
+        showMainMenu();
+    }
+
+    private void showBattleMenu() {
+        state = State.BATTLE;
+        boolean suggestRunning = decisionEngine != null
+                && decisionEngine.decide(player.getHealth(), monster.getHealth()) == CombatDecisionEngine.Action.RUN;
+        battle.showMenu(suggestRunning);
+        battle.flush();
+    }
+
+    private void battle(int choice) {
+        switch (choice) {
+            case 1:
+                boolean healerStrikes = decisionEngine != null && player.isHasHealerCompanion()
+                        && decisionEngine.decideAttack(player.getHealth(), monster.getHealth())
+                        == CombatDecisionEngine.Action.ATTACK_HEALER_STRIKES;
+                int monsterHealth = monster.getHealth();
+                battle.attack(healerStrikes);
+                emit(GameEvent.Type.ATTACK, monster.getName(), monsterHealth - monster.getHealth(), 0);
+                break;
+            case 2:
+                int playerHealth = player.getHealth();
+                if (battle.run()) {
+                    battle.flush();
+                    emit(GameEvent.Type.ESCAPE, monster.getName(), 0, 0);
+                    showMainMenu();
+                    return;
+                }
+                emit(GameEvent.Type.BLOCKED, monster.getName(), playerHealth - player.getHealth(), 0);
+                break;
+            default:
+                battle.invalidChoice();
+        }
+        if (!battleOver()) {
+            showBattleMenu();
+        }
+    }
+
+    /**
+     * Ends the battle if either side has fallen, giving the player the monster's gold if they won.
+     *
+     * @return True if the battle is over; otherwise, false.
+     */
+    private boolean battleOver() {
+        if (monster.getHealth() > 0 && player.getHealth() > 0) {
+            return false;
+        }
+        int reward = battle.finish();
+        battle.flush();
+        if (reward < 0) {
+            emit(GameEvent.Type.DEFEAT, monster.getName(), 0, 0);
+            quit();
+        } else {
+            ledger.recordMint(player, reward);
+            emit(GameEvent.Type.VICTORY, monster.getName(), 0, reward);
+            showMainMenu();
+        }
+        return true;
+    }
+
+    private void recruit(int choice) {
+        switch (choice) {
+            case 1:
+                if (!player.isHasHealerCompanion()) {
+                    player.setHasHealerCompanion(true);
+                    say("You recruited a Healer companion!");
+                    emit(GameEvent.Type.RECRUIT, "Healer", 0, 0);
+                } else {
+                    say("You already have a Healer companion.");
+                }
+                break;
+            case 2:
+                if (!player.isHasWarriorCompanion()) {
+                    player.setHasWarriorCompanion(true);
+                    say("You recruited a Warrior companion!");
+                    emit(GameEvent.Type.RECRUIT, "Warrior", 0, 0);
+                } else {
+                    say("You already have a Warrior companion.");
+                }
+                break;
+            default:
+                say("Invalid choice. Try again.");
+        }
+        showMainMenu();
+    }
+
+    private void shop(int choice) {
+        switch (choice) {
+            case 1:
+                say(shop.weaponMenu());
+                state = State.SHOP_WEAPONS;
+                return;
+            case 2:
+                say(shop.armorMenu());
+                state = State.SHOP_ARMOR;
+                return;
+            case 3:
+                say("Thanks for visiting the Shop!");
+                break;
+            default:
+                say("Invalid choice. Try again.");
+        }
+        showMainMenu();
+    }
+
+    private void buyWeapon(int choice) {
+        int count = shop.getWeapons().length;
+        if (choice >= 1 && choice <= count) {
+            ShopItem weapon = shop.purchaseWeapon(player, choice - 1);
+            if (weapon != null) {
+                ledger.recordSink(player, weapon.getPrice());
+                emit(GameEvent.Type.PURCHASE, weapon.getName(), 0, weapon.getPrice());
+                say("You bought the " + weapon.getName() + ". Your damage increased to " + weapon.getDamage() + ".");
+            } else {
+                say("Not enough gold to buy the weapon.");
+            }
+        } else if (choice == count + 1) {
+            say("You canceled the purchase.");
+        } else {
+            say("Invalid choice. Try again.");
+        }
+        showMainMenu();
+    }
+
+    private void buyArmor(int choice) {
+        int count = shop.getArmors().length;
+        if (choice >= 1 && choice <= count) {
+            ShopItem armor = shop.purchaseArmor(player, choice - 1);
+            if (armor != null) {
+                ledger.recordSink(player, armor.getPrice());
+                emit(GameEvent.Type.PURCHASE, armor.getName(), 0, armor.getPrice());
+                say("You bought the " + armor.getName() + ". Your defense increased to " + player.getHealth() + ".");
+            } else {
+                say("Not enough gold to buy the armor.");
+            }
+        } else if (choice == count + 1) {
+            say("You canceled the purchase.");
+        } else {
+            say("Invalid choice. Try again.");
+        }
+        showMainMenu();
+    }
+}
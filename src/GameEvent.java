@@ -0,0 +1,147 @@
+/**
+ * Something that happened to a player in the game, such as a battle round or a purchase.
+ *
+ * Events carry the names involved and up to three numbers, whose meaning depends on the type: the damage
+ * dealt or taken, the player's health afterwards, and the gold gained or spent.
+ *
+ * A game reports all of its events on one object that it refills each time, so that playing allocates no
+ * events. A listener that needs an event after it returns must copy what it needs.
+ */
+class GameEvent {
+    /**
+     * What happened.
+     */
+    enum Type {
+        /** The player explored a room; the subject is empty. */
+        EXPLORE,
+        /** The player encountered a monster. */
+        ENCOUNTER,
+        /** The player and their companions attacked a monster; damage is the total they dealt. */
+        ATTACK,
+        /** The player ran away; the subject is the monster, or null when fleeing a room. */
+        ESCAPE,
+        /** The player's escape was blocked; damage is what the player took. */
+        BLOCKED,
+        /** The player defeated a monster; gold is the reward. */
+        VICTORY,
+        /** The player was defeated by a monster. */
+        DEFEAT,
+        /** The player recruited a companion; the subject is the companion's kind. */
+        RECRUIT,
+        /** The player bought an item; the subject is the item and gold is its price. */
+        PURCHASE
+    }
+
+    private Type type;
+    private String player;
+    private String room;
+    private String subject;
+    private int damage;
+    private int health;
+    private int gold;
+
+    /**
+     * Constructs a new GameEvent.
+     *
+     * @param type    What happened.
+     * @param player  The name of the player.
+     * @param room    The room the player was in, or null if it does not apply.
+     * @param subject The monster, companion or item involved, or null if none.
+     * @param damage  The damage dealt or taken, or 0.
+     * @param health  The player's health afterwards.
+     * @param gold    The gold gained or spent, or 0.
+     */
+    public GameEvent(Type type, String player, String room, String subject, int damage, int health, int gold) {
+        set(type, player, room, subject, damage, health, gold);
+    }
+
+    /**
+     * Makes this event describe something else that happened.
+     *
+     * @param type    What happened.
+     * @param player  The name of the player.
+     * @param room    The room the player was in, or null if it does not apply.
+     * @param subject The monster, companion or item involved, or null if none.
+     * @param damage  The damage dealt or taken, or 0.
+     * @param health  The player's health afterwards.
+     * @param gold    The gold gained or spent, or 0.
+     */
+    void set(Type type, String player, String room, String subject, int damage, int health, int gold) {
+        this.type = type;
+        this.player = player;
+        this.room = room;
+        this.subject = subject;
+        this.damage = damage;
+        this.health = health;
+        this.gold = gold;
+    }
+
+    /**
+     * Returns what happened.
+     *
+     * @return The type of the event.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Returns the name of the player.
+     *
+     * @return The player's name.
+     */
+    public String getPlayer() {
+        return player;
+    }
+
+    /**
+     * Returns the room the player was in.
+     *
+     * @return The room name, or null if it does not apply.
+     */
+    public String getRoom() {
+        return room;
+    }
+
+    /**
+     * Returns the monster, companion or item involved.
+     *
+     * @return The subject's name, or null if none.
+     */
+    public String getSubject() {
+        return subject;
+    }
+
+    /**
+     * Returns the damage dealt or taken.
+     *
+     * @return The damage, or 0.
+     */
+    public int getDamage() {
+        return damage;
+    }
+
+    /**
+     * Returns the player's health after the event.
+     *
+     * @return The player's health.
+     */
+    public int getHealth() {
+        return health;
+    }
+
+    /**
+     * Returns the gold gained or spent.
+     *
+     * @return The gold, or 0.
+     */
+    public int getGold() {
+        return gold;
+    }
+
+    @Override
+    public String toString() {
+        return type + "(" + player + ", " + room + ", " + subject + ", damage=" + damage + ", health=" + health
+                + ", gold=" + gold + ")";
+    }
+}
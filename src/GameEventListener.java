@@ -0,0 +1,14 @@
+/**
+ * Receives the events of a game as they happen.
+ *
+ * Listeners are called on the game thread, so they must return quickly and must not block. The event passed
+ * to a listener is reused for the next one, so it must not be kept after the listener returns.
+ */
+interface GameEventListener {
+    /**
+     * Called after something happened in the game.
+     *
+     * @param event What happened.
+     */
+    void onEvent(GameEvent event);
+}
@@ -0,0 +1,492 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * One process of a game cluster, holding the players that the consistent-hash ring assigns to it.
+ *
+ * Nodes and routers talk over TCP with a small binary protocol: every request is an operation code followed
+ * by its arguments, and every response a status code followed by its result. A node only serves players it
+ * owns under its current ring and answers MOVED with the owner's address for everyone else. A node that has
+ * not been given a ring yet, as when it is joining the cluster, answers BUSY and should be asked again.
+ *
+ * When the ring changes, each node hands off the players it no longer owns by sending their serialized state
+ * to their new owner, and only forgets a player once the new owner has stored it. A new owner asked for a
+ * player it has not received yet fetches them from the previous owner, so players can keep logging in while
+ * the handoff is in progress. Players saved on the new owner during the handoff are newer than the copy
+ * being handed off, so a handoff never replaces a player the new owner already holds. Ring changes must be
+ * applied one at a time: a node remembers only the ring before its current one.
+ *
+ * A player whose handoff fails stays on the old owner, where the new owner can still fetch them, and the
+ * handoff is tried again the next time the ring is set, even to the same ring.
+ *
+ * A node never holds a player's lock while waiting for another node to take one of its own locks, so two
+ * nodes handing players to each other cannot deadlock.
+ */
+class GameNode implements AutoCloseable {
+    static final byte LOGIN = 1;
+    static final byte SAVE = 2;
+    static final byte HANDOFF = 3;
+    static final byte FETCH = 4;
+    static final byte SET_RING = 5;
+    static final byte GET_RING = 6;
+    static final byte COUNT = 7;
+
+    static final byte OK = 0;
+    static final byte MOVED = 1;
+    static final byte GONE = 2;
+    static final byte FAILED = 3;
+    static final byte BUSY = 4;
+
+    private static final int LOCK_STRIPES = 64;
+    private static final int NODE_TIMEOUT_MILLIS = 10_000;
+    private static final String DEFAULT_ADDRESS = "127.0.0.1:0";
+
+    private final ServerSocket server;
+    private final String address;
+    private final ExecutorService workers;
+    private final ConcurrentHashMap<String, Player> players = new ConcurrentHashMap<>();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final Object ringLock = new Object();
+    private volatile ConsistentHashRing ring = new ConsistentHashRing(new ArrayList<>());
+    private volatile ConsistentHashRing previousRing = ring;
+    private Thread acceptor;
+
+    /**
+     * Constructs a new GameNode bound to the given address. The node owns no players until it is given a ring.
+     *
+     * @param bindAddress The address to listen on; port 0 picks a free port.
+     * @throws IOException If the server socket cannot be opened.
+     */
+    public GameNode(InetSocketAddress bindAddress) throws IOException {
+        server = new ServerSocket();
+        server.bind(bindAddress);
+        address = server.getInetAddress().getHostAddress() + ":" + server.getLocalPort();
+        workers = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "game-node-" + server.getLocalPort());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Starts accepting connections on a background thread.
+     */
+    public synchronized void start() {
+        if (acceptor != null) {
+            throw new IllegalStateException("The node is already running.");
+        }
+        acceptor = new Thread(this::acceptConnections, "game-node-acceptor-" + server.getLocalPort());
+        acceptor.start();
+    }
+
+    /**
+     * Returns the address other nodes and routers reach this node at, as host:port.
+     *
+     * @return The address of the node.
+     */
+    public String getAddress() {
+        return address;
+    }
+
+    /**
+     * Returns the number of players this node holds.
+     *
+     * @return The number of players.
+     */
+    public int getPlayerCount() {
+        return players.size();
+    }
+
+    /**
+     * Stops accepting connections and closes the server socket.
+     *
+     * @throws IOException If the server socket cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        server.close();
+        workers.shutdownNow();
+    }
+
+    /**
+     * Main method to run a game node in its own process.
+     * @param args An optional host:port to listen on, 127.0.0.1:0 by default, followed by the addresses of
+     *             the nodes on the initial ring.
+     * @throws IOException If the node cannot be started.
+     */
+    public static void main(String[] args) throws IOException {
+        String[] hostAndPort = (args.length > 0 ? args[0] : DEFAULT_ADDRESS).split(":");
+        GameNode node = new GameNode(new InetSocketAddress(InetAddress.getByName(hostAndPort[0]),
+                Integer.parseInt(hostAndPort[1])));
+        List<String> nodes = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            nodes.add(args[i]);
+        }
+        node.setRing(new ConsistentHashRing(nodes));
+        node.start();
+        System.out.println("Game node listening on " + node.getAddress() + ".");
+    }
+
+    private void acceptConnections() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                workers.execute(() -> serve(socket));
+            } catch (IOException e) {
+                if (!server.isClosed()) {
+                    System.err.println("Error accepting connection: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Answers requests on one connection until the other side closes it.
+     */
+    private void serve(Socket socket) {
+        try (Link link = new Link(socket)) {
+            while (true) {
+                byte operation;
+                try {
+                    operation = link.in.readByte();
+                } catch (EOFException e) {
+                    return;
+                }
+                handle(operation, link.in, link.out);
+                link.out.flush();
+            }
+        } catch (IOException e) {
+            if (!server.isClosed()) {
+                System.err.println("Error serving " + socket.getRemoteSocketAddress() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void handle(byte operation, DataInputStream in, DataOutputStream out) throws IOException {
+        switch (operation) {
+            case LOGIN:
+                login(in.readUTF(), out);
+                break;
+            case SAVE:
+                save(readPlayer(in), out);
+                break;
+            case HANDOFF:
+                Player handedOff = readPlayer(in);
+                synchronized (lockFor(handedOff.getName())) {
+                    players.putIfAbsent(handedOff.getName(), handedOff);
+                }
+                out.writeByte(OK);
+                break;
+            case FETCH:
+                fetch(in.readUTF(), out);
+                break;
+            case SET_RING:
+                int stranded = setRing(new ConsistentHashRing(readNodes(in), in.readInt()));
+                if (stranded == 0) {
+                    out.writeByte(OK);
+                } else {
+                    out.writeByte(FAILED);
+                    out.writeUTF(stranded + " players could not be handed off from " + address
+                            + " and will be retried when the ring is set again.");
+                }
+                break;
+            case GET_RING:
+                ConsistentHashRing current = ring;
+                out.writeByte(OK);
+                writeNodes(out, current.getNodes());
+                out.writeInt(current.getVirtualNodes());
+                break;
+            case COUNT:
+                out.writeByte(OK);
+                out.writeInt(players.size());
+                break;
+            default:
+                out.writeByte(FAILED);
+                out.writeUTF("Unknown operation " + operation + ".");
+        }
+    }
+
+    /**
+     * Returns a player's state, fetching it from the previous owner or starting a new player if needed. The
+     * previous owner is asked without holding the player's lock, and ownership is checked again afterwards.
+     */
+    private void login(String name, DataOutputStream out) throws IOException {
+        Player player;
+        synchronized (lockFor(name)) {
+            // Ownership is checked under the lock, so a player is never stored after being handed off.
+            if (!owns(name, out)) {
+                return;
+            }
+            player = players.get(name);
+        }
+        if (player == null) {
+            Player fetched = fetchFromPreviousOwner(name);
+            synchronized (lockFor(name)) {
+                // A fetched player is kept even if the ring moved on meanwhile; the next ring change hands them off.
+                if (fetched != null) {
+                    players.putIfAbsent(name, fetched);
+                }
+                if (!owns(name, out)) {
+                    return;
+                }
+                player = players.get(name);
+                if (player == null) {
+                    player = new Player(name, ChatRPG.INITIAL_PLAYER_HEALTH, ChatRPG.INITIAL_PLAYER_DAMAGE,
+                            ChatRPG.INITIAL_PLAYER_GOLD, false, false);
+                    players.put(name, player);
+                }
+            }
+        }
+        out.writeByte(OK);
+        writePlayer(out, player);
+    }
+
+    private void save(Player player, DataOutputStream out) throws IOException {
+        synchronized (lockFor(player.getName())) {
+            if (!owns(player.getName(), out)) {
+                return;
+            }
+            players.put(player.getName(), player);
+        }
+        out.writeByte(OK);
+    }
+
+    /**
+     * Checks whether the node owns a player under its current ring, answering MOVED or BUSY if not.
+     */
+    private boolean owns(String name, DataOutputStream out) throws IOException {
+        String owner = ring.nodeFor(name);
+        if (address.equals(owner)) {
+            return true;
+        }
+        if (owner == null) {
+            out.writeByte(BUSY);
+        } else {
+            out.writeByte(MOVED);
+            out.writeUTF(owner);
+        }
+        return false;
+    }
+
+    /**
+     * Gives up a player to their new owner, or answers GONE if the player has already been handed off.
+     */
+    private void fetch(String name, DataOutputStream out) throws IOException {
+        Player player;
+        synchronized (lockFor(name)) {
+            player = players.remove(name);
+        }
+        if (player == null) {
+            out.writeByte(GONE);
+            return;
+        }
+        out.writeByte(OK);
+        writePlayer(out, player);
+    }
+
+    /**
+     * Asks the owner under the previous ring for a player it has not handed off yet. If it answers GONE,
+     * the handoff has finished in the meantime and the player is already here, so null is returned.
+     */
+    private Player fetchFromPreviousOwner(String name) throws IOException {
+        String previousOwner = previousRing.nodeFor(name);
+        if (previousOwner == null || previousOwner.equals(address)) {
+            return null;
+        }
+        try (Link link = new Link(previousOwner, NODE_TIMEOUT_MILLIS)) {
+            link.out.writeByte(FETCH);
+            link.out.writeUTF(name);
+            link.out.flush();
+            return link.in.readByte() == OK ? readPlayer(link.in) : null;
+        }
+    }
+
+    /**
+     * Adopts a new ring and hands off every player the node no longer owns before returning. Setting the
+     * ring the node already has keeps its previous ring and only retries handoffs that failed.
+     *
+     * Once the ring is adopted, the node refuses saves for players it no longer owns. Each player's copy is
+     * taken under their lock, after any save that was let in under the old ring has finished, so it cannot
+     * change underneath the handoff and no lock is held while talking to the new owner.
+     *
+     * @return The number of players that could not be handed off.
+     */
+    private int setRing(ConsistentHashRing next) {
+        synchronized (ringLock) {
+            if (!next.getNodes().equals(ring.getNodes()) || next.getVirtualNodes() != ring.getVirtualNodes()) {
+                previousRing = ring;
+                ring = next;
+            }
+            int stranded = 0;
+            for (String name : new ArrayList<>(players.keySet())) {
+                String owner = ring.nodeFor(name);
+                if (owner == null || owner.equals(address)) {
+                    continue;
+                }
+                Player player;
+                synchronized (lockFor(name)) {
+                    player = players.get(name);
+                }
+                if (player == null) {
+                    continue;
+                }
+                try {
+                    handOff(owner, player);
+                    synchronized (lockFor(name)) {
+                        players.remove(name, player);
+                    }
+                } catch (IOException e) {
+                    System.err.println("Could not hand off " + name + " to " + owner + ": " + e.getMessage());
+                    stranded++;
+                }
+            }
+            return stranded;
+        }
+    }
+
+    private static void handOff(String owner, Player player) throws IOException {
+        try (Link link = new Link(owner, NODE_TIMEOUT_MILLIS)) {
+            link.out.writeByte(HANDOFF);
+            writePlayer(link.out, player);
+            link.out.flush();
+            if (link.in.readByte() != OK) {
+                throw new IOException("Node " + owner + " refused the handoff of " + player.getName() + ".");
+            }
+        }
+    }
+
+    private Object lockFor(String name) {
+        return locks[(name.hashCode() & Integer.MAX_VALUE) % LOCK_STRIPES];
+    }
+
+    /**
+     * Writes the state of a player.
+     *
+     * @param out    The stream to write to.
+     * @param player The player to write.
+     * @throws IOException If the stream cannot be written.
+     */
+    static void writePlayer(DataOutputStream out, Player player) throws IOException {
+        out.writeUTF(player.getName());
+        out.writeInt(player.getHealth());
+        out.writeInt(player.getDamage());
+        out.writeInt(player.getPlayerGold());
+        out.writeBoolean(player.isHasHealerCompanion());
+        out.writeBoolean(player.isHasWarriorCompanion());
+    }
+
+    /**
+     * Reads the state of a player written by writePlayer.
+     *
+     * @param in The stream to read from.
+     * @return The player.
+     * @throws IOException If the stream cannot be read.
+     */
+    static Player readPlayer(DataInputStream in) throws IOException {
+        return new Player(in.readUTF(), in.readInt(), in.readInt(), in.readInt(), in.readBoolean(), in.readBoolean());
+    }
+
+    /**
+     * Writes a list of node addresses.
+     *
+     * @param out   The stream to write to.
+     * @param nodes The node addresses.
+     * @throws IOException If the stream cannot be written.
+     */
+    static void writeNodes(DataOutputStream out, Collection<String> nodes) throws IOException {
+        out.writeInt(nodes.size());
+        for (String node : nodes) {
+            out.writeUTF(node);
+        }
+    }
+
+    /**
+     * Reads a list of node addresses written by writeNodes.
+     *
+     * @param in The stream to read from.
+     * @return The node addresses.
+     * @throws IOException If the stream cannot be read.
+     */
+    static List<String> readNodes(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<String> nodes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            nodes.add(in.readUTF());
+        }
+        return nodes;
+    }
+
+    /**
+     * A connection to a node with buffered data streams in both directions.
+     */
+    static final class Link implements Closeable {
+        final Socket socket;
+        final DataInputStream in;
+        final DataOutputStream out;
+
+        /**
+         * Connects to a node.
+         *
+         * @param address The address of the node, as host:port.
+         * @throws IOException If the node cannot be reached.
+         */
+        Link(String address) throws IOException {
+            this(connect(address, 0));
+        }
+
+        /**
+         * Connects to a node, giving up on connecting or on any read that takes longer than the timeout.
+         *
+         * @param address       The address of the node, as host:port.
+         * @param timeoutMillis The timeout in milliseconds.
+         * @throws IOException If the node cannot be reached.
+         */
+        Link(String address, int timeoutMillis) throws IOException {
+            this(connect(address, timeoutMillis));
+        }
+
+        private Link(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        private static Socket connect(String address, int timeoutMillis) throws IOException {
+            int separator = address.lastIndexOf(':');
+            Socket socket = new Socket();
+            try {
+                socket.connect(new InetSocketAddress(address.substring(0, separator),
+                        Integer.parseInt(address.substring(separator + 1))), timeoutMillis);
+                socket.setSoTimeout(timeoutMillis);
+                socket.setTcpNoDelay(true);
+            } catch (IOException e) {
+                socket.close();
+                throw e;
+            }
+            return socket;
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
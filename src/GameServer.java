@@ -0,0 +1,523 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * A non-blocking network front end that serves game sessions over TCP.
+ *
+ * Connections are spread over a fixed number of event loops, one per core by default, each of which owns a
+ * selector and every connection registered with it. A connection publishes the lines the player types as a
+ * stream of commands and subscribes to the narration its session produces. Backpressure is honored end to
+ * end: a connection stops reading from its socket while its session is not asking for commands, and only
+ * asks its session for more narration as its socket accepts the previous output.
+ *
+ * A connection whose session fails is closed on its own; the other connections on its event loop carry on.
+ */
+class GameServer implements AutoCloseable {
+    private static final int DEFAULT_PORT = 4000;
+    private static final long ECONOMY_AUDIT_PERIOD_SECONDS = 60;
+    private static final long BROADCAST_PERIOD_MILLIS = 100;
+    private static final int READ_BUFFER_SIZE = 1024;
+    private static final int MAX_LINE_LENGTH = 256;
+    private static final int MAX_PENDING_COMMANDS = 16;
+    private static final int OUTPUT_WINDOW = 32;
+
+    private final ServerSocketChannel server;
+    private final EventLoop[] loops;
+    private final Supplier<? extends Flow.Processor<String, String>> sessions;
+    private int nextLoop;
+
+    /**
+     * Constructs a new GameServer bound to the given address.
+     *
+     * @param address    The address to listen on.
+     * @param eventLoops The number of event loop threads.
+     * @param sessions   Creates the session that serves each new connection.
+     * @throws IOException If the server socket cannot be opened.
+     */
+    public GameServer(InetSocketAddress address, int eventLoops,
+                      Supplier<? extends Flow.Processor<String, String>> sessions) throws IOException {
+        if (eventLoops <= 0) {
+            throw new IllegalArgumentException("eventLoops must be positive: " + eventLoops);
+        }
+        this.sessions = sessions;
+        this.loops = new EventLoop[eventLoops];
+        this.server = ServerSocketChannel.open();
+        try {
+            server.bind(address);
+            server.configureBlocking(false);
+            for (int i = 0; i < eventLoops; i++) {
+                loops[i] = new EventLoop("game-loop-" + i);
+            }
+        } catch (IOException e) {
+            closeLoops();
+            server.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Starts the event loops and begins accepting connections.
+     */
+    public void start() {
+        EventLoop acceptor = loops[0];
+        acceptor.execute(() -> {
+            try {
+                server.register(acceptor.selector, SelectionKey.OP_ACCEPT, (Handler) key -> accept());
+            } catch (IOException e) {
+                System.err.println("Could not accept connections: " + e.getMessage());
+            }
+        });
+        for (EventLoop loop : loops) {
+            loop.thread.start();
+        }
+    }
+
+    /**
+     * Returns the port the server is listening on.
+     *
+     * @return The local port.
+     * @throws IOException If the port cannot be determined.
+     */
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) server.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Stops accepting connections, closes every open connection and stops the event loops.
+     *
+     * @throws IOException If the server socket cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        server.close();
+        closeLoops();
+    }
+
+    private void closeLoops() {
+        for (EventLoop loop : loops) {
+            if (loop != null) {
+                loop.close();
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = server.accept()) != null) {
+            channel.configureBlocking(false);
+            EventLoop loop = loops[nextLoop];
+            nextLoop = (nextLoop + 1) % loops.length;
+            Connection connection = new Connection(loop, channel);
+            loop.execute(() -> connection.guard(connection::start));
+        }
+    }
+
+    /**
+     * Main method to start the game server.
+     * @param args The command-line arguments. An optional first argument sets the port to listen on.
+     * @throws IOException If the server cannot be started.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        EconomyLedger ledger = new EconomyLedger();
+        ledger.startAuditor(ECONOMY_AUDIT_PERIOD_SECONDS, TimeUnit.SECONDS,
+                report -> System.err.println("Economy audit failed: " + report.getProblems()));
+        RoomBroadcaster broadcaster = new RoomBroadcaster();
+        broadcaster.start(BROADCAST_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+        QuestBook quests = new QuestBook(ChatRPG.createQuests());
+        int eventLoops = Runtime.getRuntime().availableProcessors();
+        // Every event loop fills a block of its own, and the writer needs as many again to keep up.
+        AnalyticsExporter analytics = System.getProperty(ChatRPG.ANALYTICS_PROPERTY) != null
+                ? ChatRPG.openAnalytics(System.getProperty(ChatRPG.ANALYTICS_PROPERTY),
+                        Math.max(AnalyticsExporter.DEFAULT_BLOCKS, 2 * eventLoops)) : null;
+        if (analytics != null) {
+            ChatRPG.closeOnExit(analytics);
+        }
+        boolean companionAi = Boolean.getBoolean(ChatRPG.COMPANION_AI_PROPERTY);
+        GameServer gameServer = new GameServer(new InetSocketAddress(port), eventLoops, () -> {
+            GameSession session = new GameSession(new Random(), ledger, broadcaster);
+            session.setQuests(quests);
+            if (analytics != null) {
+                session.addListener(analytics);
+            }
+            if (companionAi) {
+                session.setDecisionEngine(new CombatDecisionEngine());
+            }
+            return session;
+        });
+        gameServer.start();
+        System.out.println("RPG Game server listening on port " + gameServer.getPort() + ".");
+    }
+
+    /**
+     * Reacts to a channel becoming ready.
+     */
+    private interface Handler {
+        void handle(SelectionKey key) throws IOException;
+    }
+
+    /**
+     * A thread that owns a selector and runs every callback for the channels registered with it.
+     */
+    private static final class EventLoop {
+        private final Selector selector;
+        private final Thread thread;
+        private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private volatile boolean running = true;
+
+        EventLoop(String name) throws IOException {
+            this.selector = Selector.open();
+            this.thread = new Thread(this::run, name);
+        }
+
+        boolean inLoop() {
+            return Thread.currentThread() == thread;
+        }
+
+        /**
+         * Runs a task on this loop's thread.
+         */
+        void execute(Runnable task) {
+            tasks.add(task);
+            if (!inLoop()) {
+                selector.wakeup();
+            }
+        }
+
+        void close() {
+            running = false;
+            if (thread.getState() == Thread.State.NEW) {
+                closeSelector();
+                return;
+            }
+            selector.wakeup();
+            if (!inLoop()) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        private void run() {
+            try {
+                while (running) {
+                    if (tasks.isEmpty()) {
+                        selector.select();
+                    } else {
+                        selector.selectNow();
+                    }
+                    Runnable task;
+                    while ((task = tasks.poll()) != null) {
+                        runTask(task);
+                    }
+                    for (SelectionKey key : selector.selectedKeys()) {
+                        dispatch(key);
+                    }
+                    selector.selectedKeys().clear();
+                }
+            } catch (IOException | ClosedSelectorException e) {
+                System.err.println("Event loop " + thread.getName() + " stopped: " + e.getMessage());
+            } finally {
+                closeSelector();
+            }
+        }
+
+        private void runTask(Runnable task) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                System.err.println("A task on event loop " + thread.getName() + " failed: " + e);
+            }
+        }
+
+        private void dispatch(SelectionKey key) {
+            try {
+                if (key.isValid()) {
+                    ((Handler) key.attachment()).handle(key);
+                }
+            } catch (IOException | RuntimeException e) {
+                if (key.attachment() instanceof Connection) {
+                    ((Connection) key.attachment()).fail(e);
+                } else {
+                    System.err.println("Event loop " + thread.getName() + " could not accept a connection: " + e);
+                }
+            }
+        }
+
+        private void closeSelector() {
+            if (!selector.isOpen()) {
+                return;
+            }
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof Connection) {
+                    ((Connection) key.attachment()).close();
+                }
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                System.err.println("Could not close selector: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * A client connection. It is the publisher of the player's commands, the subscription its session uses
+     * to ask for them, and the subscriber of the session's narration. Every method runs on the connection's
+     * event loop; signals arriving from other threads are handed over to it.
+     */
+    private final class Connection implements Handler, Flow.Publisher<String>, Flow.Subscription,
+            Flow.Subscriber<String> {
+        private final EventLoop loop;
+        private final SocketChannel channel;
+        private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        private final byte[] line = new byte[MAX_LINE_LENGTH];
+        private final ArrayDeque<String> commands = new ArrayDeque<>();
+        private final ArrayDeque<ByteBuffer> writes = new ArrayDeque<>();
+
+        private SelectionKey key;
+        private Flow.Subscriber<? super String> commandSubscriber;
+        private Flow.Subscription output;
+        private int lineLength;
+        private long commandDemand;
+        private boolean delivering;
+        private boolean inputEnded;
+        private boolean commandsCompleted;
+        private boolean outputCompleted;
+        private boolean closed;
+
+        Connection(EventLoop loop, SocketChannel channel) {
+            this.loop = loop;
+            this.channel = channel;
+        }
+
+        void start() {
+            try {
+                key = channel.register(loop.selector, 0, this);
+            } catch (IOException e) {
+                close();
+                return;
+            }
+            Flow.Processor<String, String> session = sessions.get();
+            session.subscribe(this);
+            subscribe(session);
+            updateInterest();
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super String> subscriber) {
+            commandSubscriber = subscriber;
+            subscriber.onSubscribe(this);
+        }
+
+        @Override
+        public void request(long n) {
+            if (!loop.inLoop()) {
+                loop.execute(() -> guard(() -> request(n)));
+                return;
+            }
+            if (n <= 0) {
+                close();
+                return;
+            }
+            commandDemand = commandDemand + n < 0 ? Long.MAX_VALUE : commandDemand + n;
+            deliverCommands();
+            updateInterest();
+        }
+
+        @Override
+        public void cancel() {
+            if (!loop.inLoop()) {
+                loop.execute(() -> guard(this::cancel));
+                return;
+            }
+            commandsCompleted = true;
+            commands.clear();
+            updateInterest();
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            output = subscription;
+            subscription.request(OUTPUT_WINDOW);
+        }
+
+        @Override
+        public void onNext(String text) {
+            if (!loop.inLoop()) {
+                loop.execute(() -> guard(() -> onNext(text)));
+                return;
+            }
+            if (closed) {
+                return;
+            }
+            writes.add(ByteBuffer.wrap((text + "\n").getBytes(StandardCharsets.UTF_8)));
+            try {
+                flush();
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            onComplete();
+        }
+
+        @Override
+        public void onComplete() {
+            if (!loop.inLoop()) {
+                loop.execute(() -> guard(this::onComplete));
+                return;
+            }
+            outputCompleted = true;
+            if (writes.isEmpty()) {
+                close();
+            }
+        }
+
+        @Override
+        public void handle(SelectionKey key) throws IOException {
+            if (key.isReadable()) {
+                read();
+            }
+            if (key.isValid() && key.isWritable()) {
+                flush();
+            }
+        }
+
+        private void read() throws IOException {
+            int read = channel.read(readBuffer);
+            if (read < 0) {
+                inputEnded = true;
+            }
+            readBuffer.flip();
+            while (readBuffer.hasRemaining()) {
+                byte b = readBuffer.get();
+                if (b == '\n') {
+                    int length = lineLength > 0 && line[lineLength - 1] == '\r' ? lineLength - 1 : lineLength;
+                    commands.add(new String(line, 0, length, StandardCharsets.UTF_8));
+                    lineLength = 0;
+                } else if (lineLength < MAX_LINE_LENGTH) {
+                    line[lineLength++] = b;
+                }
+            }
+            readBuffer.clear();
+            deliverCommands();
+            updateInterest();
+        }
+
+        private void deliverCommands() {
+            if (delivering || commandSubscriber == null || commandsCompleted) {
+                return;
+            }
+            delivering = true;
+            try {
+                while (commandDemand > 0 && !commands.isEmpty() && !commandsCompleted) {
+                    commandDemand--;
+                    commandSubscriber.onNext(commands.poll());
+                }
+                if (inputEnded && commands.isEmpty() && !commandsCompleted) {
+                    commandsCompleted = true;
+                    commandSubscriber.onComplete();
+                }
+            } finally {
+                delivering = false;
+            }
+        }
+
+        private void flush() throws IOException {
+            int written = 0;
+            while (!writes.isEmpty()) {
+                ByteBuffer buffer = writes.peek();
+                channel.write(buffer);
+                if (buffer.hasRemaining()) {
+                    break;
+                }
+                writes.poll();
+                written++;
+            }
+            if (writes.isEmpty() && outputCompleted) {
+                close();
+                return;
+            }
+            updateInterest();
+            if (written > 0 && !outputCompleted) {
+                output.request(written);
+            }
+        }
+
+        private void updateInterest() {
+            if (closed || key == null || !key.isValid()) {
+                return;
+            }
+            boolean reading = !inputEnded && !commandsCompleted && commands.size() < MAX_PENDING_COMMANDS
+                    && commandDemand > 0;
+            int ops = (reading ? SelectionKey.OP_READ : 0) | (writes.isEmpty() ? 0 : SelectionKey.OP_WRITE);
+            key.interestOps(ops);
+        }
+
+        /**
+         * Runs a task for this connection on its event loop, closing the connection if the task fails.
+         */
+        void guard(Runnable task) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                fail(e);
+            }
+        }
+
+        /**
+         * Closes the connection after a failure. Failures other than the socket's own are reported.
+         */
+        void fail(Exception failure) {
+            if (!(failure instanceof IOException)) {
+                System.err.println("Closing a connection after its session failed: " + failure);
+            }
+            try {
+                close();
+            } catch (RuntimeException e) {
+                System.err.println("Could not close connection: " + e);
+            }
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (key != null) {
+                key.cancel();
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Could not close connection: " + e.getMessage());
+            }
+            if (commandSubscriber != null && !commandsCompleted) {
+                commandsCompleted = true;
+                commandSubscriber.onComplete();
+            }
+            if (output != null && !outputCompleted) {
+                outputCompleted = true;
+                output.cancel();
+            }
+        }
+    }
+}
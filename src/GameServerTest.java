@@ -0,0 +1,123 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameServerTest {
+    private static final int TIMEOUT_MILLIS = 10_000;
+
+    /**
+     * A player connected to the server over a socket.
+     */
+    private static class Client implements AutoCloseable {
+        private final Socket socket;
+        private final BufferedReader in;
+        private final OutputStream out;
+
+        Client(GameServer server) throws IOException {
+            socket = new Socket("127.0.0.1", server.getPort());
+            socket.setSoTimeout(TIMEOUT_MILLIS);
+            in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            out = socket.getOutputStream();
+        }
+
+        void send(String line) throws IOException {
+            out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+
+        /**
+         * Reads lines until one contains the given text.
+         */
+        void await(String text) throws IOException {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.contains(text)) {
+                    return;
+                }
+            }
+            fail("The connection closed before \"" + text + "\" arrived.");
+        }
+
+        /**
+         * Reads until the server closes the connection.
+         */
+        void awaitClose() throws IOException {
+            while (in.readLine() != null) {
+                // Skip the rest of the narration.
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    /**
+     * A session that fails when the player types "crash".
+     */
+    private static class CrashingSession extends GameSession {
+        CrashingSession() {
+            super(new Random(7), new EconomyLedger());
+        }
+
+        @Override
+        public synchronized void onNext(String command) {
+            if (command.equals("crash")) {
+                throw new IllegalStateException("The session crashed.");
+            }
+            super.onNext(command);
+        }
+    }
+
+    @Test
+    public void testPlayOverSocket() throws IOException {
+        try (GameServer server = new GameServer(new InetSocketAddress("127.0.0.1", 0), 2,
+                () -> new GameSession(new Random(7), new EconomyLedger()))) {
+            server.start();
+            try (Client client = new Client(server)) {
+                client.await("Enter your name:");
+                client.send("Alice");
+                client.await("Hello, Alice! Your journey begins now.");
+                client.send("2");
+                client.await("----- Alice's Stats -----");
+                client.send("5");
+                client.await("Thanks for playing! Goodbye!");
+                client.awaitClose();
+            }
+        }
+    }
+
+    @Test
+    public void testFailingSessionClosesOnlyItsConnection() throws IOException {
+        try (GameServer server = new GameServer(new InetSocketAddress("127.0.0.1", 0), 1, CrashingSession::new)) {
+            server.start();
+            try (Client crashing = new Client(server); Client bystander = new Client(server)) {
+                crashing.await("Enter your name:");
+                bystander.await("Enter your name:");
+                crashing.send("Mallory");
+                crashing.await("5. Quit game");
+                bystander.send("Bob");
+                bystander.await("5. Quit game");
+
+                crashing.send("crash");
+                crashing.awaitClose();
+
+                bystander.send("2");
+                bystander.await("----- Bob's Stats -----");
+                try (Client newcomer = new Client(server)) {
+                    newcomer.await("Enter your name:");
+                }
+            }
+        }
+    }
+}
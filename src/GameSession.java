@@ -0,0 +1,371 @@
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Flow;
+
+/**
+ * A non-blocking game session that turns a stream of player commands into a stream of narration.
+ *
+ * The session asks for the player's name and then plays a Game, passing every command line on as the answer
+ * to the game's current menu. It honors backpressure in both directions: a new command is only requested
+ * from upstream once all narration for the previous one has been delivered downstream, so a slow reader
+ * stops the session from reading input instead of letting output pile up.
+ *
+ * With a RoomBroadcaster, the session tells other players in the same room about its battles and loot, and
+ * passes on what they do whenever it has nothing of its own to say.
+ */
+class GameSession implements Flow.Processor<String, String> {
+    private final Random random;
+    private final EconomyLedger ledger;
+    private final RoomBroadcaster broadcaster;
+    private final ArrayDeque<String> pending = new ArrayDeque<>();
+    private final List<GameEventListener> listeners = new ArrayList<>();
+    private QuestBook quests;
+    private CombatDecisionEngine decisionEngine;
+
+    private Flow.Subscription upstream;
+    private Flow.Subscriber<? super String> downstream;
+    private long demand;
+    private boolean awaitingCommand;
+    private boolean draining;
+    private boolean completed;
+
+    private Game game;
+    private boolean finished;
+    private RoomBroadcaster.Member member;
+
+    /**
+     * Constructs a new GameSession that asks for the player's name first.
+     */
+    public GameSession() {
+        this(new Random(), new EconomyLedger());
+    }
+
+    /**
+     * Constructs a new GameSession that draws its dice rolls from the given random number generator.
+     *
+     * @param random The random number generator used for rooms, monsters and damage rolls.
+     * @param ledger The ledger that records the gold the player earns and spends.
+     */
+    public GameSession(Random random, EconomyLedger ledger) {
+        this(random, ledger, null);
+    }
+
+    /**
+     * Constructs a new GameSession that shares what happens in each room with the other players in it.
+     *
+     * @param random      The random number generator used for rooms, monsters and damage rolls.
+     * @param ledger      The ledger that records the gold the player earns and spends.
+     * @param broadcaster The broadcaster connecting players in the same room, or null to play alone.
+     */
+    public GameSession(Random random, EconomyLedger ledger, RoomBroadcaster broadcaster) {
+        this.random = random;
+        this.ledger = ledger;
+        this.broadcaster = broadcaster;
+        emit("Welcome to the RPG Game!\n Enter your name: ");
+    }
+
+    /**
+     * Registers a listener for everything that happens to the player once the game starts.
+     *
+     * @param listener The listener to call after every event.
+     */
+    public synchronized void addListener(GameEventListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Tracks the player's progress through the given quests once the game starts.
+     *
+     * @param quests The quests the player can complete, or null to track none.
+     */
+    public synchronized void setQuests(QuestBook quests) {
+        this.quests = quests;
+    }
+
+    /**
+     * Lets a decision engine advise the player and direct the Healer companion in battle.
+     *
+     * @param decisionEngine The engine to consult every round, or null to let companions act as usual.
+     */
+    public synchronized void setDecisionEngine(CombatDecisionEngine decisionEngine) {
+        this.decisionEngine = decisionEngine;
+    }
+
+    /**
+     * Returns the menu the session is currently waiting on.
+     *
+     * @return The current state of the game, FINISHED once the session has ended, or null while the session
+     *         is waiting for the player's name.
+     */
+    public synchronized Game.State getState() {
+        if (game != null) {
+            return game.getState();
+        }
+        return finished ? Game.State.FINISHED : null;
+    }
+
+    /**
+     * Returns the player of this session.
+     *
+     * @return The player, or null if the player has not entered a name yet.
+     */
+    public synchronized Player getPlayer() {
+        return game != null ? game.getPlayer() : null;
+    }
+
+    @Override
+    public synchronized void subscribe(Flow.Subscriber<? super String> subscriber) {
+        if (downstream != null) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("A game session supports a single subscriber."));
+            return;
+        }
+        downstream = subscriber;
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                requestOutput(n);
+            }
+
+            @Override
+            public void cancel() {
+                cancelOutput();
+            }
+        });
+        drain();
+    }
+
+    @Override
+    public synchronized void onSubscribe(Flow.Subscription subscription) {
+        if (upstream != null) {
+            subscription.cancel();
+            return;
+        }
+        upstream = subscription;
+        drain();
+    }
+
+    @Override
+    public synchronized void onNext(String command) {
+        awaitingCommand = false;
+        if (!finished) {
+            handle(command.trim());
+        }
+        drain();
+    }
+
+    @Override
+    public synchronized void onError(Throwable throwable) {
+        finish();
+        drain();
+    }
+
+    @Override
+    public synchronized void onComplete() {
+        finish();
+        drain();
+    }
+
+    private synchronized void requestOutput(long n) {
+        if (n <= 0) {
+            if (downstream != null && !completed) {
+                completed = true;
+                downstream.onError(new IllegalArgumentException("Non-positive request: " + n));
+            }
+            return;
+        }
+        demand += n;
+        if (demand < 0) {
+            demand = Long.MAX_VALUE;
+        }
+        drain();
+    }
+
+    private synchronized void cancelOutput() {
+        completed = true;
+        pending.clear();
+        finish();
+        if (upstream != null) {
+            upstream.cancel();
+        }
+    }
+
+    private synchronized void broadcastArrived() {
+        drain();
+    }
+
+    /**
+     * Delivers pending narration while there is demand for it, then passes on messages from other players
+     * in the room and asks upstream for the next command once everything produced so far has been delivered.
+     */
+    private void drain() {
+        if (draining || downstream == null) {
+            return;
+        }
+        draining = true;
+        try {
+            while (!completed) {
+                while (demand > 0 && !pending.isEmpty()) {
+                    demand--;
+                    downstream.onNext(pending.poll());
+                }
+                if (!pending.isEmpty()) {
+                    return;
+                }
+                String broadcast = member != null && demand > 0 ? member.poll() : null;
+                if (broadcast != null) {
+                    pending.add(broadcast);
+                    continue;
+                }
+                if (finished) {
+                    completed = true;
+                    if (upstream != null) {
+                        upstream.cancel();
+                    }
+                    downstream.onComplete();
+                    return;
+                }
+                if (demand == 0 || upstream == null || awaitingCommand) {
+                    return;
+                }
+                awaitingCommand = true;
+                upstream.request(1);
+            }
+        } finally {
+            draining = false;
+        }
+    }
+
+    private void emit(String text) {
+        pending.add(text);
+    }
+
+    private void finish() {
+        finished = true;
+        if (game != null) {
+            game.quit();
+        }
+        if (member != null) {
+            member.leave();
+            member = null;
+        }
+    }
+
+    /**
+     * Advances the game by one command.
+     *
+     * @param command The line the player entered.
+     */
+    private void handle(String command) {
+        if (game == null) {
+            startGame(command);
+            return;
+        }
+
+        int choice;
+        try {
+            choice = Integer.parseInt(command);
+        } catch (NumberFormatException e) {
+            choice = -1;
+        }
+        game.handle(choice);
+        if (game.getState() == Game.State.FINISHED) {
+            finish();
+        }
+    }
+
+    private void startGame(String playerName) {
+        Player player = new Player(playerName, ChatRPG.INITIAL_PLAYER_HEALTH, ChatRPG.INITIAL_PLAYER_DAMAGE,
+                ChatRPG.INITIAL_PLAYER_GOLD, false, false);
+        game = new Game(player, ChatRPG.createMonsters(), new Shop(), new Room(), ledger, random, this::emit,
+                new BattleNarration());
+        game.setDecisionEngine(decisionEngine);
+        if (quests != null) {
+            game.trackQuests(quests);
+        }
+        for (GameEventListener listener : listeners) {
+            game.addListener(listener);
+        }
+        if (broadcaster != null) {
+            member = broadcaster.join(player.getName(), this::broadcastArrived);
+            game.addListener(this::share);
+        }
+        game.start();
+    }
+
+    /**
+     * Collects the narration of a battle and passes it on as one message each time the battle flushes it.
+     */
+    private final class BattleNarration extends OutputStream {
+        private final ByteArrayOutputStream text = new ByteArrayOutputStream();
+
+        @Override
+        public void write(int b) {
+            text.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            text.write(b, off, len);
+        }
+
+        @Override
+        public void flush() {
+            if (text.size() == 0) {
+                return;
+            }
+            String message = text.toString(StandardCharsets.UTF_8);
+            text.reset();
+            // Every message ends a line of its own, so the battle's final line break is not needed.
+            emit(message.endsWith("\n") ? message.substring(0, message.length() - 1) : message);
+        }
+    }
+
+    /**
+     * Tells the other players in the player's room about the player's battles and loot.
+     *
+     * @param event What happened to the player.
+     */
+    private void share(GameEvent event) {
+        if (member == null) {
+            return;
+        }
+        switch (event.getType()) {
+            case EXPLORE:
+                member.enter(event.getRoom());
+                break;
+            case ENCOUNTER:
+                member.publish("encountered a " + event.getSubject());
+                break;
+            case ATTACK:
+                member.publish("hit the " + event.getSubject() + " for " + event.getDamage() + " damage");
+                break;
+            case ESCAPE:
+                if (event.getSubject() != null) {
+                    member.publish("ran away from the " + event.getSubject());
+                }
+                break;
+            case VICTORY:
+                member.publish("defeated the " + event.getSubject() + " and looted " + event.getGold() + " gold");
+                break;
+            case DEFEAT:
+                member.publish("was defeated by the " + event.getSubject());
+                break;
+            default:
+                break;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Flow;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameSessionTest {
+
+    /**
+     * Publishes a fixed list of commands as they are requested.
+     */
+    private static class ScriptedCommands implements Flow.Publisher<String>, Flow.Subscription {
+        private final ArrayDeque<String> lines;
+        private Flow.Subscriber<? super String> subscriber;
+        private long requested;
+        private boolean cancelled;
+
+        ScriptedCommands(String... lines) {
+            this.lines = new ArrayDeque<>(Arrays.asList(lines));
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super String> subscriber) {
+            this.subscriber = subscriber;
+            subscriber.onSubscribe(this);
+        }
+
+        @Override
+        public void request(long n) {
+            requested += n;
+            while (requested > 0 && !lines.isEmpty() && !cancelled) {
+                requested--;
+                subscriber.onNext(lines.poll());
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+
+    /**
+     * Collects the narration of a session, asking for a fixed number of messages up front.
+     */
+    private static class Narration implements Flow.Subscriber<String> {
+        private final List<String> messages = new ArrayList<>();
+        private final long initialRequest;
+        private Flow.Subscription subscription;
+        private boolean complete;
+
+        Narration(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(initialRequest);
+        }
+
+        @Override
+        public void onNext(String item) {
+            messages.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            fail(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            complete = true;
+        }
+
+        boolean saw(String text) {
+            return messages.stream().anyMatch(message -> message.contains(text));
+        }
+    }
+
+    private static GameSession play(Narration narration, String... commands) {
+        GameSession session = new GameSession(new Random(42), new EconomyLedger());
+        session.subscribe(narration);
+        new ScriptedCommands(commands).subscribe(session);
+        return session;
+    }
+
+    @Test
+    public void testStatsAndQuit() {
+        Narration narration = new Narration(Long.MAX_VALUE);
+        GameSession session = play(narration, "Alice", "2", "5");
+
+        assertTrue(narration.saw("Hello, Alice! Your journey begins now."));
+        assertTrue(narration.saw("----- Alice's Stats -----"));
+        assertTrue(narration.saw("Thanks for playing! Goodbye!"));
+        assertEquals(Game.State.FINISHED, session.getState());
+        assertTrue(narration.complete);
+    }
+
+    @Test
+    public void testLedgerForgetsFinishedSessions() {
+        EconomyLedger ledger = new EconomyLedger();
+        GameSession session = new GameSession(new Random(42), ledger);
+        session.subscribe(new Narration(Long.MAX_VALUE));
+        new ScriptedCommands("Alice", "2").subscribe(session);
+        assertEquals(1, ledger.getAccountCount());
+
+        session.onComplete();
+        assertEquals(Game.State.FINISHED, session.getState());
+        assertEquals(0, ledger.getAccountCount());
+    }
+
+    @Test
+    public void testRecruitCompanions() {
+        Narration narration = new Narration(Long.MAX_VALUE);
+        GameSession session = play(narration, "Bob", "3", "1", "3", "2", "3");
+
+        assertTrue(session.getPlayer().isHasHealerCompanion());
+        assertTrue(session.getPlayer().isHasWarriorCompanion());
+        assertTrue(narration.saw("You cannot recruit more."));
+        assertEquals(Game.State.MAIN_MENU, session.getState());
+    }
+
+    @Test
+    public void testBattleNarrationArrivesAsMessages() {
+        Narration narration = new Narration(Long.MAX_VALUE);
+        GameSession session = play(narration, "Ann", "1", "1", "1");
+
+        assertTrue(narration.saw("You encounter a"));
+        assertTrue(narration.saw("What would you like to do?\n1. Attack\n2. Run"));
+        assertTrue(narration.saw("You attack the"));
+        assertTrue(narration.messages.stream().noneMatch(message -> message.endsWith("\n")));
+        assertNotEquals(Game.State.ROOM, session.getState());
+    }
+
+    @Test
+    public void testShopWithoutGold() {
+        Narration narration = new Narration(Long.MAX_VALUE);
+        GameSession session = play(narration, "Eve", "4", "1", "1");
+
+        assertTrue(narration.saw("Available Weapons:"));
+        assertTrue(narration.saw("Not enough gold to buy the weapon."));
+        assertEquals(20, session.getPlayer().getDamage());
+    }
+
+    @Test
+    public void testCommandsWaitForDemand() {
+        Narration narration = new Narration(1);
+        GameSession session = new GameSession(new Random(42), new EconomyLedger());
+        session.subscribe(narration);
+        ScriptedCommands commands = new ScriptedCommands("Dan", "2");
+        commands.subscribe(session);
+
+        assertEquals(1, narration.messages.size());
+        assertEquals(2, commands.lines.size(), "No command should be read before narration is requested.");
+
+        narration.subscription.request(1);
+
+        assertEquals(1, commands.lines.size());
+        assertEquals(2, narration.messages.size());
+        assertEquals(Game.State.MAIN_MENU, session.getState());
+    }
+}
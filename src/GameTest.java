@@ -0,0 +1,88 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class GameTest {
+    private static final int WARMUP_ROUNDS = 20_000;
+    private static final int MEASURED_ROUNDS = 20_000;
+
+    private static Game game(Player player, Monster[] monsters, List<String> narration) {
+        return new Game(player, monsters, new Shop(), new Room(), new EconomyLedger(), new Random(5),
+                narration::add, OutputStream.nullOutputStream());
+    }
+
+    @Test
+    public void testPurchasesHappenInTheRoomLastExplored() {
+        Player player = new Player("Alice", 100, 20, 100, false, false);
+        Game game = game(player, ChatRPG.createMonsters(), new ArrayList<>());
+        List<String> events = new ArrayList<>();
+        Set<GameEvent> objects = Collections.newSetFromMap(new IdentityHashMap<>());
+        game.addListener(event -> {
+            events.add(event.toString());
+            objects.add(event);
+        });
+
+        game.handle(1);
+        game.handle(2);
+        String room = events.get(0).split(", ")[1];
+        game.handle(4);
+        game.handle(2);
+        game.handle(1);
+
+        assertEquals(Game.State.MAIN_MENU, game.getState());
+        assertEquals("PURCHASE(Alice, " + room + ", Armor 1, damage=0, health=" + player.getHealth() + ", gold=20)",
+                events.get(events.size() - 1));
+        assertEquals(1, objects.size(), "Every event should be reported on the same object.");
+    }
+
+    @Test
+    public void testQuitClosesTheAccount() {
+        EconomyLedger ledger = new EconomyLedger();
+        List<String> narration = new ArrayList<>();
+        Game game = new Game(new Player("Bob", 100, 20, 0, false, false), ChatRPG.createMonsters(), new Shop(),
+                new Room(), ledger, new Random(5), narration::add, OutputStream.nullOutputStream());
+        assertEquals(1, ledger.getAccountCount());
+
+        game.start();
+        game.handle(5);
+        game.handle(2);
+
+        assertEquals(Game.State.FINISHED, game.getState());
+        assertEquals(0, ledger.getAccountCount());
+        assertEquals("Thanks for playing! Goodbye!", narration.get(narration.size() - 1));
+    }
+
+    @Test
+    public void testBattleRoundsWithQuestsDoNotAllocate() {
+        assumeTrue(AllocationMeter.isSupported());
+        // The game as ChatRPG.main sets it up, which always tracks quests.
+        Player player = new Player("Bench", Integer.MAX_VALUE / 2, 30, 0, true, true);
+        Monster giant = new Monster("Giant", Integer.MAX_VALUE, 5, 10);
+        Game game = game(player, new Monster[]{giant}, new ArrayList<>());
+        game.trackQuests(new QuestBook(ChatRPG.createQuests()));
+        game.handle(1);
+        game.handle(1);
+        assertEquals(Game.State.BATTLE, game.getState());
+
+        long fewestBytes = AllocationMeter.fewestBytes(() -> playRounds(game, WARMUP_ROUNDS),
+                m -> playRounds(game, MEASURED_ROUNDS));
+
+        assertEquals(Game.State.BATTLE, game.getState());
+        assertEquals(0, fewestBytes, fewestBytes + " bytes were allocated in " + MEASURED_ROUNDS + " rounds.");
+    }
+
+    private static void playRounds(Game game, int rounds) {
+        for (int i = 0; i < rounds; i++) {
+            game.handle(1);
+        }
+    }
+}
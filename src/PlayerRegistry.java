@@ -0,0 +1,497 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * A persistent registry of players keyed by name, stored as fixed-size records in a memory-mapped file.
+ *
+ * The file is an open-addressing hash table with linear probing, so a lookup touches one record in the
+ * common case and never goes through the Java heap apart from the returned Player. Records are never
+ * deleted, which keeps probe chains free of tombstones.
+ *
+ * Every record keeps two copies of the player's stats. An update writes the inactive copy and then flips
+ * a single byte to make it active, and a new record is only marked occupied after all of its fields are
+ * written, so a process that dies mid-write leaves the previous state intact. Call {@link #sync()} to
+ * force the mapped pages to disk when durability across power loss is required.
+ *
+ * When the table is three quarters full it doubles: every record is copied into a new file next to the old
+ * one, which then replaces the old file with an atomic rename. A process that dies while growing leaves the
+ * old file untouched.
+ *
+ * Only one process can open a registry file at a time; open() fails while another holds its lock. The
+ * registry is not thread-safe; callers must serialize access to a single instance.
+ */
+class PlayerRegistry implements AutoCloseable {
+    private static final long MAGIC = 0x4348415452504731L; // "CHATRPG1"
+    private static final int FORMAT_VERSION = 1;
+    private static final double MAX_LOAD_FACTOR = 0.75;
+
+    private static final int HEADER_SIZE = 64;
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_VERSION = 8;
+    private static final int HEADER_CLEAN = 12;
+    private static final int HEADER_CAPACITY = 16;
+    private static final int HEADER_SIZE_FIELD = 24;
+    private static final int DIRTY = 0;
+    private static final int CLEAN = 1;
+    private static final int REPLACED = 2;
+    private static final int MAX_OPEN_ATTEMPTS = 3;
+    private static final String GROW_SUFFIX = ".grow";
+
+    static final int MAX_NAME_BYTES = 48;
+    private static final int RECORD_SIZE = 96;
+    private static final int STATE = 0;
+    private static final int NAME_LENGTH = 1;
+    private static final int ACTIVE_SLOT = 2;
+    private static final int HASH = 4;
+    private static final int NAME = 8;
+    private static final int SLOTS = NAME + MAX_NAME_BYTES;
+    private static final int SLOT_SIZE = 16;
+    private static final int SLOT_HEALTH = 0;
+    private static final int SLOT_DAMAGE = 4;
+    private static final int SLOT_GOLD = 8;
+    private static final int SLOT_COMPANIONS = 12;
+
+    private static final byte EMPTY = 0;
+    private static final byte OCCUPIED = 1;
+    private static final int HEALER_FLAG = 1;
+    private static final int WARRIOR_FLAG = 2;
+
+    private static final int RECORDS_PER_SEGMENT_SHIFT = 20;
+    private static final int RECORDS_PER_SEGMENT = 1 << RECORDS_PER_SEGMENT_SHIFT;
+
+    private final Path path;
+    private RandomAccessFile file;
+    private MappedByteBuffer header;
+    private MappedByteBuffer[] segments;
+    private long capacity;
+    private long mask;
+    private long maxSize;
+    private long size;
+
+    private PlayerRegistry(Path path, RandomAccessFile file, MappedByteBuffer header, MappedByteBuffer[] segments,
+                           long capacity, long size) {
+        this.path = path;
+        this.size = size;
+        use(file, header, segments, capacity);
+    }
+
+    private void use(RandomAccessFile file, MappedByteBuffer header, MappedByteBuffer[] segments, long capacity) {
+        this.file = file;
+        this.header = header;
+        this.segments = segments;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.maxSize = (long) (capacity * MAX_LOAD_FACTOR);
+    }
+
+    /**
+     * Opens the registry stored in the given file, creating it if it does not exist yet or is still blank
+     * because the process creating it died before writing its header.
+     * The capacity of an existing registry is read from the file and expectedPlayers is ignored.
+     *
+     * @param path            The file backing the registry.
+     * @param expectedPlayers The number of players a new registry should be sized for.
+     * @return The opened registry.
+     * @throws IOException If the file cannot be opened, mapped, is not a player registry, or is open in
+     *                     another process.
+     */
+    public static PlayerRegistry open(Path path, long expectedPlayers) throws IOException {
+        if (expectedPlayers <= 0) {
+            throw new IllegalArgumentException("expectedPlayers must be positive: " + expectedPlayers);
+        }
+        // A registry that grew while this process was opening it has been replaced; open the new file.
+        for (int attempt = 0; attempt < MAX_OPEN_ATTEMPTS; attempt++) {
+            PlayerRegistry registry = tryOpen(path, expectedPlayers);
+            if (registry != null) {
+                return registry;
+            }
+        }
+        throw new IOException("The player registry keeps being replaced by another process.");
+    }
+
+    /**
+     * Opens the registry, or returns null if the file was replaced before it could be locked.
+     */
+    private static PlayerRegistry tryOpen(Path path, long expectedPlayers) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw");
+        try {
+            FileChannel channel = file.getChannel();
+            lock(channel);
+            // A file without a header was never finished by the process that created it and is created again.
+            ByteBuffer existing = readHeader(channel);
+            boolean created = isBlank(existing);
+            long capacity;
+            if (created) {
+                capacity = tableSizeFor(expectedPlayers);
+                file.setLength(HEADER_SIZE + capacity * RECORD_SIZE);
+            } else {
+                capacity = readCapacity(channel, existing);
+            }
+
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            MappedByteBuffer[] segments = mapSegments(channel, capacity);
+            if (created) {
+                // The magic number goes last, so a header that has it is complete.
+                header.putInt(HEADER_VERSION, FORMAT_VERSION);
+                header.putLong(HEADER_CAPACITY, capacity);
+                header.putLong(HEADER_SIZE_FIELD, 0);
+                header.putLong(HEADER_MAGIC, MAGIC);
+            }
+
+            if (header.getInt(HEADER_CLEAN) == REPLACED) {
+                file.close();
+                return null;
+            }
+            // Left behind by a process that died while growing the registry.
+            Files.deleteIfExists(growPath(path));
+
+            long size = header.getLong(HEADER_SIZE_FIELD);
+            if (header.getInt(HEADER_CLEAN) == DIRTY && !created) {
+                size = countOccupied(segments, capacity);
+                header.putLong(HEADER_SIZE_FIELD, size);
+            }
+            header.putInt(HEADER_CLEAN, DIRTY);
+            header.force();
+            return new PlayerRegistry(path, file, header, segments, capacity, size);
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    private static void lock(FileChannel channel) throws IOException {
+        FileLock lock;
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        if (lock == null) {
+            throw new IOException("The player registry is already open in another process.");
+        }
+    }
+
+    /**
+     * Looks up a player by name.
+     *
+     * @param name The name of the player.
+     * @return The stored player, or null if no player with that name is registered.
+     */
+    public Player find(String name) {
+        byte[] key = encodeName(name);
+        long record = locate(key, hash(key));
+        if (record < 0) {
+            return null;
+        }
+        ByteBuffer segment = segmentOf(record);
+        int base = offsetOf(record);
+        int slot = base + SLOTS + segment.get(base + ACTIVE_SLOT) * SLOT_SIZE;
+        int companions = segment.getInt(slot + SLOT_COMPANIONS);
+        return new Player(name, segment.getInt(slot + SLOT_HEALTH), segment.getInt(slot + SLOT_DAMAGE),
+                segment.getInt(slot + SLOT_GOLD), (companions & HEALER_FLAG) != 0,
+                (companions & WARRIOR_FLAG) != 0);
+    }
+
+    /**
+     * Checks whether a player with the given name is registered.
+     *
+     * @param name The name of the player.
+     * @return True if the player is registered; otherwise, false.
+     */
+    public boolean contains(String name) {
+        byte[] key = encodeName(name);
+        return locate(key, hash(key)) >= 0;
+    }
+
+    /**
+     * Checks whether a name is short enough to be stored in the registry.
+     *
+     * @param name The name of the player.
+     * @return True if the name fits in a record; otherwise, false.
+     */
+    public static boolean canStore(String name) {
+        return name.getBytes(StandardCharsets.UTF_8).length <= MAX_NAME_BYTES;
+    }
+
+    /**
+     * Stores the current state of a player, registering the player if the name is new.
+     *
+     * @param player The player to store.
+     * @throws IOException If the registry had to grow and the larger file could not be written.
+     */
+    public void save(Player player) throws IOException {
+        byte[] key = encodeName(player.getName());
+        int hash = hash(key);
+        long record = locate(key, hash);
+        if (record >= 0) {
+            ByteBuffer segment = segmentOf(record);
+            int base = offsetOf(record);
+            byte inactive = (byte) (1 - segment.get(base + ACTIVE_SLOT));
+            writeSlot(segment, base + SLOTS + inactive * SLOT_SIZE, player);
+            segment.put(base + ACTIVE_SLOT, inactive);
+            return;
+        }
+
+        if (size >= maxSize) {
+            grow();
+            record = locate(key, hash);
+        }
+        record = -record - 1;
+        ByteBuffer segment = segmentOf(record);
+        int base = offsetOf(record);
+        segment.put(base + NAME_LENGTH, (byte) key.length);
+        segment.put(base + ACTIVE_SLOT, (byte) 0);
+        segment.putInt(base + HASH, hash);
+        for (int i = 0; i < key.length; i++) {
+            segment.put(base + NAME + i, key[i]);
+        }
+        writeSlot(segment, base + SLOTS, player);
+        segment.put(base + STATE, OCCUPIED);
+        size++;
+        header.putLong(HEADER_SIZE_FIELD, size);
+    }
+
+    /**
+     * Returns the number of registered players.
+     *
+     * @return The number of registered players.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of record slots in the registry file.
+     *
+     * @return The number of record slots.
+     */
+    public long capacity() {
+        return capacity;
+    }
+
+    /**
+     * Forces all pending changes to the storage device.
+     */
+    public void sync() {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+        header.force();
+    }
+
+    /**
+     * Flushes the registry, marks it as cleanly closed and releases the underlying file.
+     *
+     * @throws IOException If the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        sync();
+        header.putInt(HEADER_CLEAN, CLEAN);
+        header.force();
+        file.close();
+    }
+
+    /**
+     * Doubles the table by copying every record into a new file and renaming it over the old one. The new
+     * file is locked before it replaces the old one, and the old file is marked replaced before its lock is
+     * released, so another process never opens either file while this one holds it.
+     */
+    private void grow() throws IOException {
+        long grownCapacity = capacity << 1;
+        long grownMask = grownCapacity - 1;
+        Path grownPath = growPath(path);
+        RandomAccessFile grown = new RandomAccessFile(grownPath.toFile(), "rw");
+        MappedByteBuffer grownHeader;
+        MappedByteBuffer[] grownSegments;
+        try {
+            FileChannel channel = grown.getChannel();
+            lock(channel);
+            grown.setLength(0);
+            grown.setLength(HEADER_SIZE + grownCapacity * RECORD_SIZE);
+            grownHeader = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            grownSegments = mapSegments(channel, grownCapacity);
+
+            for (long record = 0; record < capacity; record++) {
+                ByteBuffer segment = segmentOf(record);
+                int base = offsetOf(record);
+                if (segment.get(base + STATE) != OCCUPIED) {
+                    continue;
+                }
+                long target = mix(segment.getInt(base + HASH)) & grownMask;
+                while (grownSegments[(int) (target >>> RECORDS_PER_SEGMENT_SHIFT)].get(offsetOf(target) + STATE) != EMPTY) {
+                    target = (target + 1) & grownMask;
+                }
+                ByteBuffer targetSegment = grownSegments[(int) (target >>> RECORDS_PER_SEGMENT_SHIFT)];
+                int targetBase = offsetOf(target);
+                for (int i = 0; i < RECORD_SIZE; i++) {
+                    targetSegment.put(targetBase + i, segment.get(base + i));
+                }
+            }
+
+            grownHeader.putLong(HEADER_MAGIC, MAGIC);
+            grownHeader.putInt(HEADER_VERSION, FORMAT_VERSION);
+            grownHeader.putLong(HEADER_CAPACITY, grownCapacity);
+            grownHeader.putLong(HEADER_SIZE_FIELD, size);
+            grownHeader.putInt(HEADER_CLEAN, DIRTY);
+            for (MappedByteBuffer segment : grownSegments) {
+                segment.force();
+            }
+            grownHeader.force();
+            Files.move(grownPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            grown.close();
+            Files.deleteIfExists(grownPath);
+            throw e;
+        }
+
+        header.putInt(HEADER_CLEAN, REPLACED);
+        header.force();
+        file.close();
+        use(grown, grownHeader, grownSegments, grownCapacity);
+    }
+
+    private static Path growPath(Path path) {
+        return path.resolveSibling(path.getFileName() + GROW_SUFFIX);
+    }
+
+    /**
+     * Finds the record holding the given name.
+     *
+     * @return The record index if the name is present, or -(index + 1) of the empty record where it would go.
+     */
+    private long locate(byte[] key, int hash) {
+        long record = mix(hash) & mask;
+        for (long probes = 0; probes < capacity; probes++) {
+            ByteBuffer segment = segmentOf(record);
+            int base = offsetOf(record);
+            if (segment.get(base + STATE) == EMPTY) {
+                return -record - 1;
+            }
+            if (segment.getInt(base + HASH) == hash && nameEquals(segment, base, key)) {
+                return record;
+            }
+            record = (record + 1) & mask;
+        }
+        throw new IllegalStateException("Player registry has no free records.");
+    }
+
+    private static boolean nameEquals(ByteBuffer segment, int base, byte[] key) {
+        if (segment.get(base + NAME_LENGTH) != key.length) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (segment.get(base + NAME + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeSlot(ByteBuffer segment, int slot, Player player) {
+        int companions = (player.isHasHealerCompanion() ? HEALER_FLAG : 0)
+                | (player.isHasWarriorCompanion() ? WARRIOR_FLAG : 0);
+        segment.putInt(slot + SLOT_HEALTH, player.getHealth());
+        segment.putInt(slot + SLOT_DAMAGE, player.getDamage());
+        segment.putInt(slot + SLOT_GOLD, player.getPlayerGold());
+        segment.putInt(slot + SLOT_COMPANIONS, companions);
+    }
+
+    private ByteBuffer segmentOf(long record) {
+        return segments[(int) (record >>> RECORDS_PER_SEGMENT_SHIFT)];
+    }
+
+    private static int offsetOf(long record) {
+        return (int) (record & (RECORDS_PER_SEGMENT - 1)) * RECORD_SIZE;
+    }
+
+    private static byte[] encodeName(String name) {
+        byte[] key = name.getBytes(StandardCharsets.UTF_8);
+        if (key.length > MAX_NAME_BYTES) {
+            throw new IllegalArgumentException("Player name is longer than " + MAX_NAME_BYTES + " bytes: " + name);
+        }
+        return key;
+    }
+
+    private static int hash(byte[] key) {
+        int hash = 0x811C9DC5;
+        for (byte b : key) {
+            hash = (hash ^ b) * 0x01000193;
+        }
+        return hash;
+    }
+
+    private static long mix(int hash) {
+        long h = hash * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 32);
+    }
+
+    private static long tableSizeFor(long expectedPlayers) {
+        long needed = (long) Math.ceil(expectedPlayers / MAX_LOAD_FACTOR);
+        return Math.max(RECORDS_PER_SEGMENT >> 10, Long.highestOneBit(needed - 1) << 1);
+    }
+
+    /**
+     * Reads the header of a file, leaving zeros wherever the file is too short to have one.
+     */
+    private static ByteBuffer readHeader(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+        while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) >= 0) {
+            // keep reading until the header is complete
+        }
+        return buffer;
+    }
+
+    private static boolean isBlank(ByteBuffer header) {
+        for (int i = 0; i < HEADER_SIZE; i++) {
+            if (header.get(i) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long readCapacity(FileChannel channel, ByteBuffer buffer) throws IOException {
+        if (buffer.getLong(HEADER_MAGIC) != MAGIC || buffer.getInt(HEADER_VERSION) != FORMAT_VERSION) {
+            throw new IOException("Not a player registry file.");
+        }
+        long capacity = buffer.getLong(HEADER_CAPACITY);
+        if (Long.bitCount(capacity) != 1 || channel.size() < HEADER_SIZE + capacity * RECORD_SIZE) {
+            throw new IOException("Player registry file is truncated or corrupt.");
+        }
+        return capacity;
+    }
+
+    private static MappedByteBuffer[] mapSegments(FileChannel channel, long capacity) throws IOException {
+        int count = (int) Math.max(1, capacity >>> RECORDS_PER_SEGMENT_SHIFT);
+        long recordsPerSegment = Math.min(capacity, RECORDS_PER_SEGMENT);
+        MappedByteBuffer[] segments = new MappedByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            long position = HEADER_SIZE + i * recordsPerSegment * RECORD_SIZE;
+            segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, position, recordsPerSegment * RECORD_SIZE);
+        }
+        return segments;
+    }
+
+    private static long countOccupied(MappedByteBuffer[] segments, long capacity) {
+        long count = 0;
+        long recordsPerSegment = Math.min(capacity, RECORDS_PER_SEGMENT);
+        for (MappedByteBuffer segment : segments) {
+            for (int i = 0; i < recordsPerSegment; i++) {
+                if (segment.get(i * RECORD_SIZE + STATE) == OCCUPIED) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,197 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PlayerRegistryTest {
+
+    @Test
+    public void testSaveAndFind() throws IOException {
+        Path file = Files.createTempFile("players", ".db");
+        Files.delete(file);
+        try (PlayerRegistry registry = PlayerRegistry.open(file, 100)) {
+            assertNull(registry.find("Alice"));
+
+            registry.save(new Player("Alice", 80, 30, 45, true, false));
+            Player alice = registry.find("Alice");
+
+            assertEquals("Alice", alice.getName());
+            assertEquals(80, alice.getHealth());
+            assertEquals(30, alice.getDamage());
+            assertEquals(45, alice.getPlayerGold());
+            assertTrue(alice.isHasHealerCompanion());
+            assertFalse(alice.isHasWarriorCompanion());
+            assertEquals(1, registry.size());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testUpdatesSurviveReopen() throws IOException {
+        Path file = Files.createTempFile("players", ".db");
+        Files.delete(file);
+        try {
+            try (PlayerRegistry registry = PlayerRegistry.open(file, 100)) {
+                Player bob = new Player("Bob", 100, 20, 0, false, false);
+                registry.save(bob);
+                bob.addGold(70);
+                bob.setHasWarriorCompanion(true);
+                registry.save(bob);
+            }
+
+            try (PlayerRegistry registry = PlayerRegistry.open(file, 100)) {
+                Player bob = registry.find("Bob");
+                assertEquals(70, bob.getPlayerGold());
+                assertTrue(bob.isHasWarriorCompanion());
+                assertEquals(1, registry.size());
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testManyPlayers() throws IOException {
+        Path file = Files.createTempFile("players", ".db");
+        Files.delete(file);
+        try (PlayerRegistry registry = PlayerRegistry.open(file, 5000)) {
+            for (int i = 0; i < 5000; i++) {
+                registry.save(new Player("Player" + i, i, 20, i * 2, false, false));
+            }
+
+            assertEquals(5000, registry.size());
+            for (int i = 0; i < 5000; i++) {
+                assertEquals(i * 2, registry.find("Player" + i).getPlayerGold());
+            }
+            assertFalse(registry.contains("Player5000"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testRegistryGrowsWhenFull() throws IOException {
+        Path file = Files.createTempFile("players", ".db");
+        Files.delete(file);
+        try {
+            long initialCapacity;
+            try (PlayerRegistry registry = PlayerRegistry.open(file, 10)) {
+                initialCapacity = registry.capacity();
+                for (int i = 0; i < 5000; i++) {
+                    registry.save(new Player("Player" + i, i, 20, i * 2, false, false));
+                }
+                assertTrue(registry.capacity() > initialCapacity);
+                assertEquals(5000, registry.size());
+                assertEquals(198, registry.find("Player99").getPlayerGold());
+            }
+            assertFalse(Files.exists(file.resolveSibling(file.getFileName() + ".grow")));
+
+            try (PlayerRegistry registry = PlayerRegistry.open(file, 10)) {
+                assertEquals(5000, registry.size());
+                for (int i = 0; i < 5000; i++) {
+                    assertEquals(i * 2, registry.find("Player" + i).getPlayerGold());
+                }
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testSecondOpenIsRefused() throws IOException {
+        Path file = Files.createTempFile("players", ".db");
+        Files.delete(file);
+        try (PlayerRegistry registry = PlayerRegistry.open(file, 10)) {
+            registry.save(new Player("Alice", 100, 20, 0, false, false));
+            assertThrows(IOException.class, () -> PlayerRegistry.open(file, 10));
+            assertEquals(100, registry.find("Alice").getHealth());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testDirtyOpenRecountsPlayers() throws IOException {
+        Path file = Files.createTempFile("players", ".db");
+        Path crashed = Files.createTempFile("crashed", ".db");
+        Files.delete(file);
+        try {
+            try (PlayerRegistry registry = PlayerRegistry.open(file, 100)) {
+                for (int i = 0; i < 40; i++) {
+                    registry.save(new Player("Player" + i, 100, 20, i, false, false));
+                }
+                // A copy taken while the registry is open looks like a process that died without closing it.
+                registry.sync();
+                Files.copy(file, crashed, StandardCopyOption.REPLACE_EXISTING);
+            }
+            try (FileChannel channel = FileChannel.open(crashed, StandardOpenOption.WRITE)) {
+                ByteBuffer wrongSize = ByteBuffer.allocate(8).putLong(0, 7);
+                channel.write(wrongSize, 24);
+            }
+
+            try (PlayerRegistry registry = PlayerRegistry.open(crashed, 100)) {
+                assertEquals(40, registry.size());
+                assertEquals(39, registry.find("Player39").getPlayerGold());
+            }
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(crashed);
+        }
+    }
+
+    @Test
+    public void testBlankFileIsCreatedAgain() throws IOException {
+        Path file = Files.createTempFile("players", ".db");
+        try {
+            // A process that died while creating the registry leaves a sized file without a header.
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.allocate(1), 4096);
+            }
+
+            try (PlayerRegistry registry = PlayerRegistry.open(file, 10)) {
+                assertEquals(0, registry.size());
+                registry.save(new Player("Alice", 100, 20, 5, false, false));
+            }
+            try (PlayerRegistry registry = PlayerRegistry.open(file, 10)) {
+                assertEquals(5, registry.find("Alice").getPlayerGold());
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testOtherFileIsRefused() throws IOException {
+        Path file = Files.createTempFile("notes", ".txt");
+        try {
+            Files.write(file, "Not a registry".getBytes(StandardCharsets.UTF_8));
+            assertThrows(IOException.class, () -> PlayerRegistry.open(file, 10));
+            assertEquals("Not a registry", Files.readString(file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testNameTooLong() throws IOException {
+        Path file = Files.createTempFile("players", ".db");
+        Files.delete(file);
+        try (PlayerRegistry registry = PlayerRegistry.open(file, 10)) {
+            String name = "x".repeat(PlayerRegistry.MAX_NAME_BYTES + 1);
+            assertFalse(PlayerRegistry.canStore(name));
+            assertThrows(IllegalArgumentException.class,
+                    () -> registry.save(new Player(name, 100, 20, 0, false, false)));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -27,6 +27,16 @@ public class PlayerTest {
         assertEquals(160, player.getPlayerGold());
     }
 
+    @Test
+    public void testAddGoldOverflow() {
+        Player player = new Player("Mallory", 100, 20, Integer.MAX_VALUE - 5, false, false);
+
+        assertEquals(5, player.addGold(10));
+        assertEquals(Integer.MAX_VALUE, player.getPlayerGold());
+        assertEquals(0, player.addGold(10));
+        assertEquals(Integer.MAX_VALUE, player.getPlayerGold());
+    }
+
     @Test
     public void testHealerCompanionHeal() {
         Player player = new Player("Eve", 80, 15, 40, false, false);
@@ -0,0 +1,166 @@
+import java.util.Arrays;
+
+/**
+ * An achievement or quest: a set of goals a player completes by making things happen in the game, such as
+ * "defeat 100 Goblins" or "recruit both companions".
+ *
+ * A quest can also be limited to a window of events, as in "buy Weapon 3 within 10 explores". Once more
+ * than the allowed number of window events have happened before every goal is met, the quest has failed.
+ *
+ * Quests only describe what has to happen; a QuestBook compiles them and a QuestTracker follows a player's
+ * progress.
+ */
+class Quest {
+    /**
+     * Something that has to happen a number of times.
+     */
+    static class Goal {
+        private final GameEvent.Type type;
+        private final String subject;
+        private final int count;
+
+        /**
+         * Constructs a new Goal.
+         *
+         * @param type    The type of event that counts towards the goal.
+         * @param subject The monster, companion or item the event must involve, or null for any.
+         * @param count   The number of events needed.
+         */
+        public Goal(GameEvent.Type type, String subject, int count) {
+            if (count <= 0) {
+                throw new IllegalArgumentException("A goal needs at least one event.");
+            }
+            this.type = type;
+            this.subject = subject;
+            this.count = count;
+        }
+
+        /**
+         * Returns the type of event that counts towards the goal.
+         *
+         * @return The event type.
+         */
+        public GameEvent.Type getType() {
+            return type;
+        }
+
+        /**
+         * Returns the monster, companion or item the event must involve.
+         *
+         * @return The subject, or null if any event of the type counts.
+         */
+        public String getSubject() {
+            return subject;
+        }
+
+        /**
+         * Returns the number of events needed.
+         *
+         * @return The count.
+         */
+        public int getCount() {
+            return count;
+        }
+
+        @Override
+        public String toString() {
+            return type + (subject != null ? " " + subject : "") + " x" + count;
+        }
+    }
+
+    private final String name;
+    private final Goal[] goals;
+    private final GameEvent.Type windowType;
+    private final int windowLimit;
+
+    /**
+     * Constructs a new Quest without a window.
+     *
+     * @param name  The name shown to the player.
+     * @param goals The goals that must all be met.
+     */
+    public Quest(String name, Goal... goals) {
+        this(name, null, 0, goals);
+    }
+
+    /**
+     * Constructs a new Quest that must be completed within a number of events.
+     *
+     * @param name        The name shown to the player.
+     * @param windowType  The type of event that is limited, or null for no limit.
+     * @param windowLimit The number of those events allowed before the quest fails.
+     * @param goals       The goals that must all be met.
+     */
+    public Quest(String name, GameEvent.Type windowType, int windowLimit, Goal... goals) {
+        if (goals.length == 0) {
+            throw new IllegalArgumentException("A quest needs at least one goal.");
+        }
+        if (windowType != null && windowLimit < 0) {
+            throw new IllegalArgumentException("The window limit cannot be negative.");
+        }
+        this.name = name;
+        this.goals = goals.clone();
+        this.windowType = windowType;
+        this.windowLimit = windowLimit;
+    }
+
+    /**
+     * Returns the name shown to the player.
+     *
+     * @return The quest's name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the goals that must all be met.
+     *
+     * @return A copy of the goals.
+     */
+    public Goal[] getGoals() {
+        return goals.clone();
+    }
+
+    /**
+     * Returns the number of goals.
+     *
+     * @return The number of goals.
+     */
+    public int getGoalCount() {
+        return goals.length;
+    }
+
+    /**
+     * Returns one of the goals.
+     *
+     * @param index The index of the goal.
+     * @return The goal.
+     */
+    public Goal getGoal(int index) {
+        return goals[index];
+    }
+
+    /**
+     * Returns the type of event that is limited.
+     *
+     * @return The event type, or null if the quest has no window.
+     */
+    public GameEvent.Type getWindowType() {
+        return windowType;
+    }
+
+    /**
+     * Returns the number of window events allowed before the quest fails.
+     *
+     * @return The limit.
+     */
+    public int getWindowLimit() {
+        return windowLimit;
+    }
+
+    @Override
+    public String toString() {
+        return name + Arrays.toString(goals) + (windowType != null ? " within " + windowLimit + " " + windowType : "");
+    }
+}
@@ -0,0 +1,186 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A set of quests compiled into lookup tables, so that an event only visits the goals and windows that
+ * depend on it.
+ *
+ * Every goal of every quest gets a slot number. For each event type the book keeps the slots of goals that
+ * accept any subject and, per subject, the slots of goals that need that subject; it also keeps the quests
+ * whose window counts that type. Looking up an event is therefore one hash lookup on its subject, and the
+ * work done is proportional to the number of goals it can advance, no matter how many quests the book holds.
+ *
+ * A book is immutable once built and can be shared by the trackers of every player.
+ */
+class QuestBook {
+    private static final int[] NONE = new int[0];
+
+    private final Quest[] quests;
+    private final Map<Quest, Integer> indexes = new IdentityHashMap<>();
+    private final int[] firstSlot;
+    private final int[] slotQuest;
+    private final int[] slotTarget;
+    private final int[] windowLimit;
+
+    private final int[][] anySubject = new int[GameEvent.Type.values().length][];
+    private final List<Map<String, int[]>> bySubject = new ArrayList<>();
+    private final int[][] windows = new int[GameEvent.Type.values().length][];
+
+    /**
+     * Constructs a new QuestBook.
+     *
+     * @param quests The quests to compile.
+     */
+    public QuestBook(Collection<Quest> quests) {
+        this.quests = quests.toArray(new Quest[0]);
+        this.firstSlot = new int[this.quests.length + 1];
+        this.windowLimit = new int[this.quests.length];
+
+        int slots = 0;
+        for (int q = 0; q < this.quests.length; q++) {
+            if (indexes.put(this.quests[q], q) != null) {
+                throw new IllegalArgumentException("The quest " + this.quests[q].getName() + " was added twice.");
+            }
+            firstSlot[q] = slots;
+            slots += this.quests[q].getGoalCount();
+        }
+        firstSlot[this.quests.length] = slots;
+        this.slotQuest = new int[slots];
+        this.slotTarget = new int[slots];
+
+        Map<GameEvent.Type, List<Integer>> any = new EnumMap<>(GameEvent.Type.class);
+        Map<GameEvent.Type, Map<String, List<Integer>>> subjects = new EnumMap<>(GameEvent.Type.class);
+        Map<GameEvent.Type, List<Integer>> windowed = new EnumMap<>(GameEvent.Type.class);
+        for (int q = 0; q < this.quests.length; q++) {
+            Quest quest = this.quests[q];
+            for (int g = 0; g < quest.getGoalCount(); g++) {
+                Quest.Goal goal = quest.getGoal(g);
+                int slot = firstSlot[q] + g;
+                slotQuest[slot] = q;
+                slotTarget[slot] = goal.getCount();
+                if (goal.getSubject() == null) {
+                    any.computeIfAbsent(goal.getType(), t -> new ArrayList<>()).add(slot);
+                } else {
+                    subjects.computeIfAbsent(goal.getType(), t -> new HashMap<>())
+                            .computeIfAbsent(goal.getSubject(), s -> new ArrayList<>()).add(slot);
+                }
+            }
+            if (quest.getWindowType() != null) {
+                windowLimit[q] = quest.getWindowLimit();
+                windowed.computeIfAbsent(quest.getWindowType(), t -> new ArrayList<>()).add(q);
+            }
+        }
+
+        for (GameEvent.Type type : GameEvent.Type.values()) {
+            anySubject[type.ordinal()] = toArray(any.get(type));
+            windows[type.ordinal()] = toArray(windowed.get(type));
+            Map<String, int[]> compiled = new HashMap<>();
+            Map<String, List<Integer>> lists = subjects.get(type);
+            if (lists != null) {
+                for (Map.Entry<String, List<Integer>> entry : lists.entrySet()) {
+                    compiled.put(entry.getKey(), toArray(entry.getValue()));
+                }
+            }
+            bySubject.add(compiled);
+        }
+    }
+
+    /**
+     * Returns the number of quests in the book.
+     *
+     * @return The number of quests.
+     */
+    public int size() {
+        return quests.length;
+    }
+
+    /**
+     * Returns a quest by its index.
+     *
+     * @param index The index of the quest.
+     * @return The quest.
+     */
+    public Quest getQuest(int index) {
+        return quests[index];
+    }
+
+    /**
+     * Returns the index of a quest in the book.
+     *
+     * @param quest The quest.
+     * @return The index of the quest.
+     * @throws IllegalArgumentException If the quest is not in the book.
+     */
+    public int indexOf(Quest quest) {
+        Integer index = indexes.get(quest);
+        if (index == null) {
+            throw new IllegalArgumentException("The quest " + quest.getName() + " is not in this book.");
+        }
+        return index;
+    }
+
+    int slotCount() {
+        return slotQuest.length;
+    }
+
+    int firstSlot(int quest) {
+        return firstSlot[quest];
+    }
+
+    int goalCount(int quest) {
+        return firstSlot[quest + 1] - firstSlot[quest];
+    }
+
+    int slotQuest(int slot) {
+        return slotQuest[slot];
+    }
+
+    int slotTarget(int slot) {
+        return slotTarget[slot];
+    }
+
+    int windowLimit(int quest) {
+        return windowLimit[quest];
+    }
+
+    /**
+     * Returns the slots of the goals that accept any event of a type.
+     */
+    int[] anySubjectSlots(GameEvent.Type type) {
+        return anySubject[type.ordinal()];
+    }
+
+    /**
+     * Returns the slots of the goals that need an event of a type about a subject.
+     */
+    int[] subjectSlots(GameEvent.Type type, String subject) {
+        if (subject == null) {
+            return NONE;
+        }
+        int[] slots = bySubject.get(type.ordinal()).get(subject);
+        return slots != null ? slots : NONE;
+    }
+
+    /**
+     * Returns the quests whose window counts events of a type.
+     */
+    int[] windowQuests(GameEvent.Type type) {
+        return windows[type.ordinal()];
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        if (values == null) {
+            return NONE;
+        }
+        int[] array = new int[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+}
@@ -0,0 +1,118 @@
+import java.util.function.Consumer;
+
+/**
+ * Follows one player's progress through the quests of a QuestBook as game events arrive.
+ *
+ * Progress is kept in flat arrays indexed by the book's goal slots and quest indexes, and every event only
+ * visits the goals and windows the book says depend on it, so handling an event takes the same time whether
+ * the player has ten quests or thousands. Handling an event allocates nothing.
+ *
+ * A tracker belongs to one player and is called on that player's game thread; it is not thread-safe.
+ */
+class QuestTracker implements GameEventListener {
+    /**
+     * Where a player stands with a quest.
+     */
+    enum Status {
+        ACTIVE,
+        COMPLETED,
+        FAILED
+    }
+
+    private static final byte ACTIVE = 0;
+    private static final byte COMPLETED = 1;
+    private static final byte FAILED = 2;
+    private static final Status[] STATUSES = Status.values();
+
+    private final QuestBook book;
+    private final Consumer<Quest> onComplete;
+    private final int[] progress;
+    private final int[] unmet;
+    private final int[] windowUsed;
+    private final byte[] status;
+    private int completed;
+
+    /**
+     * Constructs a new QuestTracker with every quest of the book active.
+     *
+     * @param book       The quests to track.
+     * @param onComplete Called on the game thread when a quest is completed.
+     */
+    public QuestTracker(QuestBook book, Consumer<Quest> onComplete) {
+        this.book = book;
+        this.onComplete = onComplete;
+        this.progress = new int[book.slotCount()];
+        this.unmet = new int[book.size()];
+        this.windowUsed = new int[book.size()];
+        this.status = new byte[book.size()];
+        for (int q = 0; q < book.size(); q++) {
+            unmet[q] = book.goalCount(q);
+        }
+    }
+
+    /**
+     * Advances the goals that count the event, then the windows that count it.
+     *
+     * @param event What happened.
+     */
+    @Override
+    public void onEvent(GameEvent event) {
+        advance(book.anySubjectSlots(event.getType()));
+        advance(book.subjectSlots(event.getType(), event.getSubject()));
+
+        int[] windowed = book.windowQuests(event.getType());
+        for (int quest : windowed) {
+            if (status[quest] == ACTIVE && ++windowUsed[quest] > book.windowLimit(quest)) {
+                status[quest] = FAILED;
+            }
+        }
+    }
+
+    private void advance(int[] slots) {
+        for (int slot : slots) {
+            int quest = book.slotQuest(slot);
+            if (status[quest] != ACTIVE || progress[slot] >= book.slotTarget(slot)) {
+                continue;
+            }
+            if (++progress[slot] == book.slotTarget(slot) && --unmet[quest] == 0) {
+                status[quest] = COMPLETED;
+                completed++;
+                onComplete.accept(book.getQuest(quest));
+            }
+        }
+    }
+
+    /**
+     * Returns where the player stands with a quest.
+     *
+     * @param quest A quest in the tracker's book.
+     * @return The quest's status.
+     */
+    public Status getStatus(Quest quest) {
+        return STATUSES[status[book.indexOf(quest)]];
+    }
+
+    /**
+     * Returns how many events have counted towards one of a quest's goals.
+     *
+     * @param quest A quest in the tracker's book.
+     * @param goal  The index of the goal within the quest.
+     * @return The number of events, at most the goal's count.
+     */
+    public int getProgress(Quest quest, int goal) {
+        int index = book.indexOf(quest);
+        if (goal < 0 || goal >= book.goalCount(index)) {
+            throw new IndexOutOfBoundsException("The quest " + quest.getName() + " has no goal " + goal + ".");
+        }
+        return progress[book.firstSlot(index) + goal];
+    }
+
+    /**
+     * Returns the number of quests the player has completed.
+     *
+     * @return The number of completed quests.
+     */
+    public int getCompletedCount() {
+        return completed;
+    }
+}
@@ -0,0 +1,126 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QuestTrackerTest {
+    private static GameEvent event(GameEvent.Type type, String subject) {
+        return new GameEvent(type, "Alice", "Cave", subject, 0, 100, 0);
+    }
+
+    @Test
+    public void testCountedGoal() {
+        Quest slayer = new Quest("Goblin Slayer", new Quest.Goal(GameEvent.Type.VICTORY, "Goblin", 3));
+        List<Quest> completed = new ArrayList<>();
+        QuestTracker tracker = new QuestTracker(new QuestBook(Arrays.asList(slayer)), completed::add);
+
+        tracker.onEvent(event(GameEvent.Type.VICTORY, "Goblin"));
+        tracker.onEvent(event(GameEvent.Type.VICTORY, "Orc"));
+        tracker.onEvent(event(GameEvent.Type.ENCOUNTER, "Goblin"));
+        tracker.onEvent(event(GameEvent.Type.VICTORY, "Goblin"));
+        assertEquals(2, tracker.getProgress(slayer, 0));
+        assertEquals(QuestTracker.Status.ACTIVE, tracker.getStatus(slayer));
+
+        tracker.onEvent(event(GameEvent.Type.VICTORY, "Goblin"));
+        tracker.onEvent(event(GameEvent.Type.VICTORY, "Goblin"));
+        assertEquals(QuestTracker.Status.COMPLETED, tracker.getStatus(slayer));
+        assertEquals(3, tracker.getProgress(slayer, 0));
+        assertEquals(Arrays.asList(slayer), completed);
+    }
+
+    @Test
+    public void testEveryGoalMustBeMet() {
+        Quest fellowship = new Quest("Fellowship", new Quest.Goal(GameEvent.Type.RECRUIT, "Healer", 1),
+                new Quest.Goal(GameEvent.Type.RECRUIT, "Warrior", 1));
+        Quest wanderer = new Quest("Wanderer", new Quest.Goal(GameEvent.Type.EXPLORE, null, 2));
+        QuestTracker tracker = new QuestTracker(new QuestBook(Arrays.asList(fellowship, wanderer)), quest -> { });
+
+        tracker.onEvent(event(GameEvent.Type.RECRUIT, "Healer"));
+        tracker.onEvent(event(GameEvent.Type.RECRUIT, "Healer"));
+        tracker.onEvent(event(GameEvent.Type.EXPLORE, null));
+        assertEquals(QuestTracker.Status.ACTIVE, tracker.getStatus(fellowship));
+        assertEquals(QuestTracker.Status.ACTIVE, tracker.getStatus(wanderer));
+
+        tracker.onEvent(event(GameEvent.Type.RECRUIT, "Warrior"));
+        tracker.onEvent(event(GameEvent.Type.EXPLORE, null));
+        assertEquals(QuestTracker.Status.COMPLETED, tracker.getStatus(fellowship));
+        assertEquals(QuestTracker.Status.COMPLETED, tracker.getStatus(wanderer));
+        assertEquals(2, tracker.getCompletedCount());
+    }
+
+    @Test
+    public void testWindowFailsQuest() {
+        Quest quick = new Quest("Quick Study", GameEvent.Type.EXPLORE, 2,
+                new Quest.Goal(GameEvent.Type.PURCHASE, "Weapon 3", 1));
+        Quest slow = new Quest("Slow Study", GameEvent.Type.EXPLORE, 3,
+                new Quest.Goal(GameEvent.Type.PURCHASE, "Weapon 3", 1));
+        QuestTracker tracker = new QuestTracker(new QuestBook(Arrays.asList(quick, slow)), quest -> { });
+
+        for (int i = 0; i < 3; i++) {
+            tracker.onEvent(event(GameEvent.Type.EXPLORE, null));
+        }
+        assertEquals(QuestTracker.Status.FAILED, tracker.getStatus(quick));
+        assertEquals(QuestTracker.Status.ACTIVE, tracker.getStatus(slow));
+
+        tracker.onEvent(event(GameEvent.Type.PURCHASE, "Weapon 3"));
+        assertEquals(QuestTracker.Status.FAILED, tracker.getStatus(quick));
+        assertEquals(QuestTracker.Status.COMPLETED, tracker.getStatus(slow));
+        assertEquals(0, tracker.getProgress(quick, 0));
+    }
+
+    @Test
+    public void testShopPurchasesReachTracker() {
+        Quest quick = new Quest("Quick Study", GameEvent.Type.EXPLORE, 10,
+                new Quest.Goal(GameEvent.Type.PURCHASE, "Weapon 3", 1));
+        Player player = new Player("Alice", 100, 20, 150, false, false);
+        Game game = new Game(player, ChatRPG.createMonsters(), new Shop(), new Room(), new EconomyLedger(),
+                new Random(1), text -> { }, OutputStream.nullOutputStream());
+        QuestTracker tracker = game.trackQuests(new QuestBook(Arrays.asList(quick)));
+
+        game.handle(4);
+        game.handle(1);
+        game.handle(1);
+        assertEquals(30, player.getDamage());
+        assertEquals(QuestTracker.Status.ACTIVE, tracker.getStatus(quick));
+        game.handle(4);
+        game.handle(1);
+        game.handle(3);
+        assertEquals(50, player.getDamage());
+        assertEquals(QuestTracker.Status.COMPLETED, tracker.getStatus(quick));
+    }
+
+    @Test
+    public void testThousandsOfQuestsOnlyMatchingOnesAdvance() {
+        List<Quest> quests = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            quests.add(new Quest("Hunt " + i, new Quest.Goal(GameEvent.Type.VICTORY, "Monster " + i, 2)));
+        }
+        quests.addAll(ChatRPG.createQuests());
+        QuestBook book = new QuestBook(quests);
+        QuestTracker tracker = new QuestTracker(book, quest -> { });
+
+        GameEvent hunted = event(GameEvent.Type.VICTORY, "Monster 1234");
+        tracker.onEvent(hunted);
+        tracker.onEvent(hunted);
+        tracker.onEvent(event(GameEvent.Type.VICTORY, "Goblin"));
+
+        assertEquals(1, tracker.getCompletedCount());
+        assertEquals(QuestTracker.Status.COMPLETED, tracker.getStatus(quests.get(1234)));
+        assertEquals(QuestTracker.Status.ACTIVE, tracker.getStatus(quests.get(1233)));
+        assertEquals(0, tracker.getProgress(quests.get(1233), 0));
+        assertEquals(1, tracker.getProgress(quests.get(5000), 0));
+    }
+
+    @Test
+    public void testQuestMustBelongToBook() {
+        Quest quest = new Quest("Wanderer", new Quest.Goal(GameEvent.Type.EXPLORE, null, 1));
+        QuestTracker tracker = new QuestTracker(new QuestBook(new ArrayList<>()), q -> { });
+        assertThrows(IllegalArgumentException.class, () -> tracker.getStatus(quest));
+        assertThrows(IllegalArgumentException.class, () -> new QuestBook(Arrays.asList(quest, quest)));
+    }
+}
@@ -0,0 +1,264 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lets players in the same room see each other's combat and loot.
+ *
+ * Publishing an event only appends it to the pending batch of the sender's room; nothing is sent to other
+ * players until the next flush. A flush turns each room's batch into a single message, coalescing all events
+ * of one player into one line and summarizing the players beyond a fixed limit, so a crowded room sends each
+ * member one bounded message per flush instead of one message per event per member. The message is rendered
+ * once and shared by every member, plus once more for each player who appears in it, since players do not
+ * see their own events.
+ *
+ * Every member has a small queue of undelivered messages. When a member reads more slowly than rooms flush,
+ * the oldest message is dropped, so a slow reader never holds up a flush or the other members.
+ */
+class RoomBroadcaster implements AutoCloseable {
+    private static final int DEFAULT_QUEUE_CAPACITY = 8;
+    private static final int MAX_PLAYERS_PER_MESSAGE = 8;
+    private static final int MAX_EVENTS_PER_PLAYER = 4;
+
+    private final ConcurrentHashMap<String, Channel> channels = new ConcurrentHashMap<>();
+    private final int queueCapacity;
+    private ScheduledExecutorService flusher;
+
+    /**
+     * Constructs a new RoomBroadcaster that keeps up to eight undelivered messages per member.
+     */
+    public RoomBroadcaster() {
+        this(DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Constructs a new RoomBroadcaster.
+     *
+     * @param queueCapacity The most undelivered messages kept for a member before the oldest is dropped.
+     */
+    public RoomBroadcaster(int queueCapacity) {
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("The queue capacity must be positive.");
+        }
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Registers a player who wants to hear about the rooms they enter.
+     *
+     * @param name   The name shown to other players.
+     * @param wakeup Called after a message has been queued for the player; it must not block.
+     * @return The player's membership, which starts outside of any room.
+     */
+    public Member join(String name, Runnable wakeup) {
+        return new Member(name, wakeup, queueCapacity);
+    }
+
+    /**
+     * Sends every room's pending events to the room's members.
+     */
+    public void flush() {
+        for (Map.Entry<String, Channel> entry : channels.entrySet()) {
+            entry.getValue().flush(entry.getKey());
+        }
+    }
+
+    /**
+     * Starts flushing in the background at a fixed rate.
+     *
+     * @param period The time between two flushes.
+     * @param unit   The unit of the period.
+     */
+    public synchronized void start(long period, TimeUnit unit) {
+        if (flusher != null) {
+            throw new IllegalStateException("The broadcaster is already running.");
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "room-broadcaster");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleAtFixedRate(this::flush, period, period, unit);
+    }
+
+    /**
+     * Stops the background flushes, if they are running.
+     */
+    @Override
+    public synchronized void close() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+            flusher = null;
+        }
+    }
+
+    private Channel channel(String room) {
+        return channels.computeIfAbsent(room, r -> new Channel());
+    }
+
+    /**
+     * The members of one room and the events they published since the last flush.
+     */
+    private static final class Channel {
+        private final Set<Member> members = ConcurrentHashMap.newKeySet();
+        private LinkedHashMap<Member, List<String>> pending = new LinkedHashMap<>();
+        private int overflow;
+
+        synchronized void publish(Member sender, String event) {
+            List<String> events = pending.get(sender);
+            if (events == null) {
+                if (pending.size() >= MAX_PLAYERS_PER_MESSAGE) {
+                    overflow++;
+                    return;
+                }
+                events = new ArrayList<>(MAX_EVENTS_PER_PLAYER);
+                pending.put(sender, events);
+            }
+            if (events.size() == MAX_EVENTS_PER_PLAYER) {
+                events.remove(0);
+            }
+            events.add(event);
+        }
+
+        void flush(String room) {
+            LinkedHashMap<Member, List<String>> batch;
+            int skipped;
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                skipped = overflow;
+                pending = new LinkedHashMap<>();
+                overflow = 0;
+            }
+
+            String shared = render(room, batch, null, skipped);
+            Map<Member, String> withoutSender = new HashMap<>();
+            for (Member member : members) {
+                String message = shared;
+                if (batch.containsKey(member)) {
+                    message = withoutSender.computeIfAbsent(member, m -> render(room, batch, m, skipped));
+                }
+                if (message != null) {
+                    member.deliver(message);
+                }
+            }
+        }
+
+        /**
+         * Renders a batch as one line per player, leaving out the given player's own events.
+         *
+         * @return The message, or null if nothing is left to tell.
+         */
+        private static String render(String room, Map<Member, List<String>> batch, Member reader, int skipped) {
+            StringBuilder message = new StringBuilder();
+            for (Map.Entry<Member, List<String>> entry : batch.entrySet()) {
+                if (entry.getKey() == reader) {
+                    continue;
+                }
+                message.append("\n[").append(room).append("] ").append(entry.getKey().name).append(' ')
+                        .append(String.join("; ", entry.getValue())).append('.');
+            }
+            if (skipped > 0) {
+                message.append("\n[").append(room).append("] ").append(skipped)
+                        .append(skipped == 1 ? " more event" : " more events").append(" from other adventurers.");
+            }
+            return message.length() == 0 ? null : message.toString();
+        }
+    }
+
+    /**
+     * A player's membership: the room they are in and the messages waiting for them.
+     */
+    final class Member {
+        private final String name;
+        private final Runnable wakeup;
+        private final ArrayBlockingQueue<String> messages;
+        private final AtomicLong dropped = new AtomicLong();
+        private volatile Channel channel;
+
+        private Member(String name, Runnable wakeup, int capacity) {
+            this.name = name;
+            this.wakeup = wakeup;
+            this.messages = new ArrayBlockingQueue<>(capacity);
+        }
+
+        /**
+         * Moves the player into a room, leaving the room they were in.
+         *
+         * @param room The name of the room.
+         */
+        public void enter(String room) {
+            Channel next = channel(room);
+            Channel previous = channel;
+            if (previous == next) {
+                return;
+            }
+            if (previous != null) {
+                previous.members.remove(this);
+            }
+            next.members.add(this);
+            channel = next;
+        }
+
+        /**
+         * Takes the player out of their room; they stop receiving messages.
+         */
+        public void leave() {
+            Channel previous = channel;
+            if (previous != null) {
+                previous.members.remove(this);
+                channel = null;
+            }
+        }
+
+        /**
+         * Tells the other players in the room about something this player did.
+         *
+         * @param event What the player did, phrased to follow their name, such as "defeated the Goblin".
+         */
+        public void publish(String event) {
+            Channel current = channel;
+            if (current != null) {
+                current.publish(this, event);
+            }
+        }
+
+        /**
+         * Takes the oldest undelivered message.
+         *
+         * @return The message, or null if there is none.
+         */
+        public String poll() {
+            return messages.poll();
+        }
+
+        /**
+         * Returns the number of messages dropped because the player read too slowly.
+         *
+         * @return The number of dropped messages.
+         */
+        public long getDropped() {
+            return dropped.get();
+        }
+
+        private void deliver(String message) {
+            while (!messages.offer(message)) {
+                if (messages.poll() != null) {
+                    dropped.incrementAndGet();
+                }
+            }
+            wakeup.run();
+        }
+    }
+}
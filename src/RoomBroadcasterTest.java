@@ -0,0 +1,175 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Flow;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RoomBroadcasterTest {
+    private static final Runnable NO_WAKEUP = () -> { };
+
+    @Test
+    public void testRoomMatesSeeEachOther() {
+        RoomBroadcaster broadcaster = new RoomBroadcaster();
+        RoomBroadcaster.Member alice = broadcaster.join("Alice", NO_WAKEUP);
+        RoomBroadcaster.Member bob = broadcaster.join("Bob", NO_WAKEUP);
+        RoomBroadcaster.Member carol = broadcaster.join("Carol", NO_WAKEUP);
+        alice.enter("Forest");
+        bob.enter("Forest");
+        carol.enter("Cave");
+
+        alice.publish("defeated the Goblin and looted 10 gold");
+        broadcaster.flush();
+
+        assertEquals("\n[Forest] Alice defeated the Goblin and looted 10 gold.", bob.poll());
+        assertNull(alice.poll(), "Players should not hear about their own actions.");
+        assertNull(carol.poll(), "Players in other rooms should not hear about it.");
+    }
+
+    @Test
+    public void testEventsAreCoalescedPerPlayer() {
+        RoomBroadcaster broadcaster = new RoomBroadcaster();
+        RoomBroadcaster.Member alice = broadcaster.join("Alice", NO_WAKEUP);
+        RoomBroadcaster.Member bob = broadcaster.join("Bob", NO_WAKEUP);
+        alice.enter("Castle");
+        bob.enter("Castle");
+
+        for (int i = 1; i <= 10; i++) {
+            alice.publish("hit the Dragon for " + i + " damage");
+        }
+        broadcaster.flush();
+
+        String message = bob.poll();
+        assertNotNull(message);
+        assertNull(bob.poll(), "A flush should send one message per member.");
+        assertTrue(message.endsWith("hit the Dragon for 10 damage."));
+        assertFalse(message.contains("for 1 damage"), "Only the latest events of a player should be kept.");
+    }
+
+    @Test
+    public void testSlowReaderLosesOldestMessages() {
+        RoomBroadcaster broadcaster = new RoomBroadcaster(2);
+        RoomBroadcaster.Member alice = broadcaster.join("Alice", NO_WAKEUP);
+        RoomBroadcaster.Member slow = broadcaster.join("Slow", NO_WAKEUP);
+        RoomBroadcaster.Member fast = broadcaster.join("Fast", NO_WAKEUP);
+        alice.enter("Cave");
+        slow.enter("Cave");
+        fast.enter("Cave");
+
+        List<String> seenByFast = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            alice.publish("explored " + i + " times");
+            broadcaster.flush();
+            seenByFast.add(fast.poll());
+        }
+
+        assertEquals(5, seenByFast.size());
+        assertEquals(0, fast.getDropped());
+        assertEquals(3, slow.getDropped());
+        assertTrue(slow.poll().contains("explored 4 times"));
+        assertTrue(slow.poll().contains("explored 5 times"));
+        assertNull(slow.poll());
+    }
+
+    @Test
+    public void testCrowdedRoomSendsOneBoundedMessageEach() {
+        RoomBroadcaster broadcaster = new RoomBroadcaster();
+        List<RoomBroadcaster.Member> members = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            RoomBroadcaster.Member member = broadcaster.join("Player" + i, NO_WAKEUP);
+            member.enter("Forest");
+            members.add(member);
+        }
+        for (RoomBroadcaster.Member member : members) {
+            member.publish("defeated the Orc and looted 20 gold");
+        }
+        broadcaster.flush();
+
+        for (RoomBroadcaster.Member member : members) {
+            String message = member.poll();
+            assertNotNull(message);
+            assertNull(member.poll());
+            assertTrue(message.contains("more events from other adventurers."));
+            assertTrue(message.length() < 1000);
+        }
+    }
+
+    @Test
+    public void testSessionsShareRoomEvents() {
+        RoomBroadcaster broadcaster = new RoomBroadcaster();
+        List<String> aliceSaw = new ArrayList<>();
+        GameSession alice = new GameSession(new Random(42), new EconomyLedger(), broadcaster);
+        GameSession bob = new GameSession(new Random(42), new EconomyLedger(), broadcaster);
+        alice.subscribe(new Recorder(aliceSaw));
+        bob.subscribe(new Recorder(new ArrayList<>()));
+        new Commands("Alice", "1").subscribe(alice);
+        new Commands("Bob", "1", "1").subscribe(bob);
+
+        broadcaster.flush();
+
+        assertTrue(aliceSaw.stream().anyMatch(message -> message.contains("Bob encountered a")),
+                "Alice should hear about Bob's battle while waiting for her next command.");
+    }
+
+    /**
+     * Publishes the given commands as they are requested.
+     */
+    private static class Commands implements Flow.Publisher<String> {
+        private final String[] lines;
+
+        Commands(String... lines) {
+            this.lines = lines;
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super String> subscriber) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                private int next;
+
+                @Override
+                public void request(long n) {
+                    for (long i = 0; i < n && next < lines.length; i++) {
+                        subscriber.onNext(lines[next++]);
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    next = lines.length;
+                }
+            });
+        }
+    }
+
+    /**
+     * Records every message of a session.
+     */
+    private static class Recorder implements Flow.Subscriber<String> {
+        private final List<String> messages;
+
+        Recorder(List<String> messages) {
+            this.messages = messages;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(String item) {
+            messages.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            fail(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+}
@@ -0,0 +1,624 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Finds the order in which to buy from the shop that gets a player ready to beat the strongest monster
+ * in the fewest explores.
+ *
+ * The game is modeled as it plays without companions: every explore draws a monster at random from a roster
+ * that lasts the whole life, so a defeated monster pays its reward again without a fight whenever it is drawn.
+ * Until the player is ready, they run from the target monster and fight everything else. Fights are solved
+ * exactly: for every weapon and monster a dynamic program over (player health, monster health) gives the
+ * chance of winning and the health left afterwards, for every starting health. Farming gold between
+ * purchases follows the expected outcome of each explore, and a plan is scored by its expected explores
+ * divided by the chance of surviving them, which is the expected time to the goal if the player starts over
+ * after dying.
+ *
+ * The search over (gold, weapon, health, defeated monsters) states memoizes every state it solves, considers
+ * only items that no cheaper item matches, and splits the first purchases across a fork-join pool.
+ *
+ * The result is exact only for catalogs with at most 12 such items of each kind, like the game's own shop.
+ * Beyond that, each purchase only considers 12 evenly spaced price points of the remaining items, so the plan
+ * is a good one but not necessarily the best: searching every item of a catalog with hundreds of them takes
+ * minutes instead of seconds.
+ */
+class ShopStrategyOptimizer {
+    private static final int DEFAULT_MAX_PURCHASES = 8;
+    private static final double DEFAULT_TARGET_WIN_CHANCE = 0.9;
+    private static final int MAX_CANDIDATES_PER_KIND = 12;
+    private static final int MAX_EXPLORES_PER_PURCHASE = 200;
+    private static final int MAX_HEALTH = 2000;
+    private static final double MIN_SURVIVAL = 1e-4;
+    private static final int PARALLEL_DEPTH = 2;
+    private static final int DEFEATED_LEVELS = 16;
+
+    private final ShopItem[] weapons;
+    private final ShopItem[] armors;
+    private final Monster[] roster;
+    private final Monster target;
+    private final double targetWinChance;
+    private final int maxPurchases;
+    private final int maxDefense;
+
+    private final ConcurrentHashMap<Long, FightTable> fights = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new ShopStrategyOptimizer for the given catalog and monsters, aiming for a 90% chance of
+     * beating the monster with the most health in at most eight purchases.
+     *
+     * @param weapons The weapons for sale.
+     * @param armors  The armors for sale.
+     * @param roster  The monsters a room can hold; each is equally likely, and those at 0 health are defeated.
+     */
+    public ShopStrategyOptimizer(ShopItem[] weapons, ShopItem[] armors, Monster[] roster) {
+        this(weapons, armors, roster, strongest(roster), DEFAULT_TARGET_WIN_CHANCE, DEFAULT_MAX_PURCHASES);
+    }
+
+    /**
+     * Constructs a new ShopStrategyOptimizer.
+     *
+     * @param weapons         The weapons for sale.
+     * @param armors          The armors for sale.
+     * @param roster          The monsters a room can hold; each is equally likely, and those at 0 health are
+     *                        defeated.
+     * @param target          The monster the player wants to be ready for.
+     * @param targetWinChance The chance of beating the target that counts as ready.
+     * @param maxPurchases    The most items a plan may buy.
+     */
+    public ShopStrategyOptimizer(ShopItem[] weapons, ShopItem[] armors, Monster[] roster, Monster target,
+                                 double targetWinChance, int maxPurchases) {
+        if (roster.length == 0) {
+            throw new IllegalArgumentException("The roster must contain at least one monster.");
+        }
+        int maxDefense = 0;
+        for (ShopItem armor : armors) {
+            maxDefense = Math.max(maxDefense, armor.getDefense());
+        }
+        this.weapons = frontier(weapons, true);
+        this.armors = frontier(armors, false);
+        this.roster = roster.clone();
+        this.target = target;
+        this.targetWinChance = targetWinChance;
+        this.maxPurchases = maxPurchases;
+        this.maxDefense = maxDefense;
+    }
+
+    /**
+     * Finds the best plan for a player in their current state.
+     *
+     * @param player The player to plan for.
+     * @return The best plan found, which is approximate for large catalogs; it does not reach the target if
+     *         no plan within the limits does.
+     */
+    public Plan optimize(Player player) {
+        int healthLimit = (int) Math.min(MAX_HEALTH, player.getHealth() + (long) maxPurchases * maxDefense);
+        byte[] defeated = new byte[roster.length];
+        for (int i = 0; i < roster.length; i++) {
+            defeated[i] = (byte) (roster[i].getHealth() <= 0 ? DEFEATED_LEVELS : 0);
+        }
+        Search search = new Search(player.getDamage(), Math.min(player.getHealth(), healthLimit),
+                player.getPlayerGold(), defeated, 0, healthLimit, new ConcurrentHashMap<>());
+        Step step = ForkJoinPool.commonPool().invoke(search);
+        return new Plan(step);
+    }
+
+    /**
+     * Main method that prints the best plan for a new player in the standard game.
+     * @param args The command-line arguments (not used).
+     */
+    public static void main(String[] args) {
+        Shop shop = new Shop();
+        ShopStrategyOptimizer optimizer = new ShopStrategyOptimizer(shop.getWeapons(), shop.getArmors(),
+                ChatRPG.createMonsters());
+        long start = System.nanoTime();
+        Plan plan = optimizer.optimize(new Player("Planner", ChatRPG.INITIAL_PLAYER_HEALTH,
+                ChatRPG.INITIAL_PLAYER_DAMAGE, ChatRPG.INITIAL_PLAYER_GOLD, false, false));
+        System.out.println(plan);
+        System.out.println("Solved in " + (System.nanoTime() - start) / 1_000_000 + " ms.");
+    }
+
+    /**
+     * Solves the best plan from one state, forking the subproblems of its first purchases.
+     */
+    private final class Search extends RecursiveTask<Step> {
+        private static final long serialVersionUID = 1L;
+
+        private final int damage;
+        private final int health;
+        private final int gold;
+        private final byte[] defeated;
+        private final int purchases;
+        private final int healthLimit;
+        private final ConcurrentHashMap<StateKey, Step> memo;
+
+        Search(int damage, int health, int gold, byte[] defeated, int purchases, int healthLimit,
+               ConcurrentHashMap<StateKey, Step> memo) {
+            this.damage = damage;
+            this.health = health;
+            this.gold = gold;
+            this.defeated = defeated;
+            this.purchases = purchases;
+            this.healthLimit = healthLimit;
+            this.memo = memo;
+        }
+
+        @Override
+        protected Step compute() {
+            StateKey key = new StateKey(damage, health, gold, defeated, purchases);
+            Step known = memo.get(key);
+            if (known != null) {
+                return known;
+            }
+            Step best = solve();
+            memo.putIfAbsent(key, best);
+            return best;
+        }
+
+        private Step solve() {
+            if (fight(damage, target, healthLimit).win[health] >= targetWinChance) {
+                return Step.READY;
+            }
+            if (purchases >= maxPurchases) {
+                return Step.STUCK;
+            }
+
+            List<ShopItem> candidates = candidates(damage);
+            List<Farming> farming = new ArrayList<>(candidates.size());
+            List<Search> subproblems = new ArrayList<>(candidates.size());
+            for (ShopItem item : candidates) {
+                Farming farm = farm(damage, health, gold, defeated, item.getPrice(), healthLimit);
+                if (farm == null) {
+                    continue;
+                }
+                int nextDamage = item.getDamage() > 0 ? item.getDamage() : damage;
+                int nextHealth = Math.min(healthLimit, farm.health + item.getDefense());
+                farming.add(farm.buying(item));
+                subproblems.add(new Search(nextDamage, nextHealth, farm.gold - item.getPrice(), farm.defeated,
+                        purchases + 1, healthLimit, memo));
+            }
+            if (purchases < PARALLEL_DEPTH) {
+                invokeAll(subproblems);
+            }
+
+            Step best = Step.STUCK;
+            for (int i = 0; i < subproblems.size(); i++) {
+                Search subproblem = subproblems.get(i);
+                Step next = purchases < PARALLEL_DEPTH ? subproblem.join() : subproblem.compute();
+                if (next.reachesTarget) {
+                    Farming farm = farming.get(i);
+                    Step step = new Step(farm.item, farm.explores, farm.survival, next);
+                    if (step.score() < best.score()) {
+                        best = step;
+                    }
+                }
+            }
+            return best;
+        }
+
+        private List<ShopItem> candidates(int currentDamage) {
+            List<ShopItem> candidates = new ArrayList<>();
+            for (ShopItem weapon : thin(weapons, currentDamage)) {
+                candidates.add(weapon);
+            }
+            Collections.addAll(candidates, thin(armors, -1));
+            return candidates;
+        }
+    }
+
+    /**
+     * Follows the expected outcome of exploring until the player can afford an item.
+     *
+     * The chance that each monster has been defeated is tracked separately, quantized to 1/16 so that plans
+     * that reach nearly the same state share their memoized solution.
+     *
+     * @return The state after farming, or null if the player is unlikely to survive it.
+     */
+    private Farming farm(int damage, int health, int gold, byte[] defeated, int price, int healthLimit) {
+        FightTable[] tables = new FightTable[roster.length];
+        double[] cleared = new double[roster.length];
+        for (int i = 0; i < roster.length; i++) {
+            tables[i] = isTarget(roster[i]) ? escape(roster[i], healthLimit) : fight(damage, roster[i], healthLimit);
+            cleared[i] = (double) defeated[i] / DEFEATED_LEVELS;
+        }
+        double survival = 1;
+        double earned = gold;
+        int explores = 0;
+        while (earned < price) {
+            if (explores >= MAX_EXPLORES_PER_PURCHASE || health <= 0 || survival < MIN_SURVIVAL) {
+                return null;
+            }
+            double alive = 0;
+            double reward = 0;
+            double healthLeft = 0;
+            for (int i = 0; i < roster.length; i++) {
+                FightTable table = tables[i];
+                if (isTarget(roster[i])) {
+                    alive += table.win[health];
+                    healthLeft += table.healthLeft[health];
+                    continue;
+                }
+                double win = table.win[health];
+                double paid = cleared[i] + (1 - cleared[i]) * win;
+                alive += paid;
+                reward += paid * roster[i].getGoldReward();
+                healthLeft += cleared[i] * health + (1 - cleared[i]) * table.healthLeft[health];
+                cleared[i] += (1 - cleared[i]) * win / roster.length;
+            }
+            if (alive <= 0) {
+                return null;
+            }
+            survival *= alive / roster.length;
+            earned += reward / alive;
+            health = (int) Math.round(healthLeft / alive);
+            explores++;
+        }
+        if (health <= 0 || survival < MIN_SURVIVAL) {
+            return null;
+        }
+        byte[] nextDefeated = new byte[roster.length];
+        for (int i = 0; i < roster.length; i++) {
+            nextDefeated[i] = (byte) Math.round(cleared[i] * DEFEATED_LEVELS);
+        }
+        return new Farming(null, explores, survival, health, (int) earned, nextDefeated);
+    }
+
+    /**
+     * Returns the exact outcome of fighting a fresh monster for every starting health.
+     */
+    private FightTable fight(int damage, Monster monster, int healthLimit) {
+        long key = ((long) damage << 40) | ((long) monster.getDamage() << 20) | monster.getHealth();
+        FightTable table = fights.get(key);
+        if (table == null || table.win.length <= healthLimit) {
+            table = solveFight(damage, monster.getDamage(), monster.getHealth(), healthLimit);
+            fights.put(key, table);
+        }
+        return table;
+    }
+
+    private boolean isTarget(Monster monster) {
+        return monster.getHealth() == target.getHealth() && monster.getDamage() == target.getDamage();
+    }
+
+    /**
+     * Returns the exact outcome of running from a monster for every starting health.
+     */
+    private FightTable escape(Monster monster, int healthLimit) {
+        long key = -(((long) monster.getDamage() << 32) | healthLimit);
+        FightTable table = fights.get(key);
+        if (table == null) {
+            table = solveEscape(monster.getDamage(), healthLimit);
+            fights.put(key, table);
+        }
+        return table;
+    }
+
+    /**
+     * Solves running away: each attempt succeeds with ESCAPE_CHANCE, and a failed one lets the monster roll
+     * uniformly in [0, monsterDamage) against the player. A roll of 0 leaves the player where they were and
+     * is divided out, as in solveFight.
+     */
+    static FightTable solveEscape(int monsterDamage, int maxHealth) {
+        FightTable table = new FightTable(maxHealth);
+        double escape = Battle.ESCAPE_CHANCE;
+        double hit = (1 - escape) / monsterDamage;
+        double stay = 1 - hit;
+        double winSum = 0;
+        double healthSum = 0;
+        for (int p = 1; p <= maxHealth; p++) {
+            // Sums over the states a non-zero roll can lead to: p - monsterDamage + 1 .. p - 1.
+            int dropped = p - monsterDamage;
+            if (dropped >= 1) {
+                winSum -= table.win[dropped];
+                healthSum -= table.healthLeft[dropped];
+            }
+            table.win[p] = (escape + hit * winSum) / stay;
+            table.healthLeft[p] = (escape * p + hit * healthSum) / stay;
+            winSum += table.win[p];
+            healthSum += table.healthLeft[p];
+        }
+        return table;
+    }
+
+    /**
+     * Solves a fight with a dynamic program over (player health, monster health).
+     *
+     * Each round the player rolls uniformly in [0, damage) and the monster in [0, monsterDamage); the player
+     * loses if their health drops to 0 and wins if they survive a round that drops the monster to 0. The
+     * chance of winning from (p, m) is the average over all roll pairs, computed in O(1) per state from 2D
+     * prefix sums of the states already solved. The roll pair (0, 0) leads back to (p, m) itself and is
+     * divided out.
+     */
+    static FightTable solveFight(int damage, int monsterDamage, int monsterHealth, int maxHealth) {
+        FightTable table = new FightTable(maxHealth);
+        int rolls = damage * monsterDamage;
+        if (damage <= 0 || monsterDamage <= 0 || rolls == 1) {
+            return table;
+        }
+        // Rows are player health from -monsterDamage to maxHealth, columns monster health from -damage.
+        int rows = maxHealth + monsterDamage + 1;
+        int columns = monsterHealth + damage + 1;
+        double[][] winSums = new double[rows + 1][columns + 1];
+        double[][] healthSums = new double[rows + 1][columns + 1];
+        for (int r = 0; r < rows; r++) {
+            int p = r - monsterDamage;
+            for (int c = 0; c < columns; c++) {
+                int m = c - damage;
+                double win;
+                double health;
+                if (p <= 0) {
+                    win = 0;
+                    health = 0;
+                } else if (m <= 0) {
+                    win = 1;
+                    health = p;
+                } else {
+                    int top = r - monsterDamage + 1;
+                    int left = c - damage + 1;
+                    win = (rect(winSums, top, r - 1, left, c) + rect(winSums, r, r, left, c - 1)) / (rolls - 1);
+                    health = (rect(healthSums, top, r - 1, left, c) + rect(healthSums, r, r, left, c - 1)) / (rolls - 1);
+                }
+                winSums[r + 1][c + 1] = win + winSums[r][c + 1] + winSums[r + 1][c] - winSums[r][c];
+                healthSums[r + 1][c + 1] = health + healthSums[r][c + 1] + healthSums[r + 1][c] - healthSums[r][c];
+                if (c == columns - 1 && p >= 0) {
+                    table.win[p] = win;
+                    table.healthLeft[p] = health;
+                }
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Sums the cells of rows top..bottom and columns left..right from a table of 2D prefix sums.
+     */
+    private static double rect(double[][] sums, int top, int bottom, int left, int right) {
+        if (top > bottom || left > right) {
+            return 0;
+        }
+        return sums[bottom + 1][right + 1] - sums[top][right + 1] - sums[bottom + 1][left] + sums[top][left];
+    }
+
+    /**
+     * Drops every item that a cheaper or equally priced item matches.
+     */
+    private static ShopItem[] frontier(ShopItem[] items, boolean weapons) {
+        ShopItem[] sorted = items.clone();
+        Arrays.sort(sorted, Comparator.comparingInt(ShopItem::getPrice)
+                .thenComparing(Comparator.comparingInt((ShopItem item) -> strength(item, weapons)).reversed()));
+        List<ShopItem> frontier = new ArrayList<>();
+        int best = Integer.MIN_VALUE;
+        for (ShopItem item : sorted) {
+            if (strength(item, weapons) > best) {
+                best = strength(item, weapons);
+                frontier.add(item);
+            }
+        }
+        return frontier.toArray(new ShopItem[0]);
+    }
+
+    private static int strength(ShopItem item, boolean weapon) {
+        return weapon ? item.getDamage() : item.getDefense();
+    }
+
+    /**
+     * Returns the items of a frontier that are stronger than the given strength. When there are more than
+     * MAX_CANDIDATES_PER_KIND, only evenly spaced price points are kept, which makes the search approximate.
+     */
+    private static ShopItem[] thin(ShopItem[] frontier, int strongerThan) {
+        int first = 0;
+        while (first < frontier.length && frontier[first].getDamage() > 0 && frontier[first].getDamage() <= strongerThan) {
+            first++;
+        }
+        int count = frontier.length - first;
+        if (count <= MAX_CANDIDATES_PER_KIND) {
+            return Arrays.copyOfRange(frontier, first, frontier.length);
+        }
+        ShopItem[] thinned = new ShopItem[MAX_CANDIDATES_PER_KIND];
+        for (int i = 0; i < MAX_CANDIDATES_PER_KIND; i++) {
+            thinned[i] = frontier[first + (int) ((long) i * (count - 1) / (MAX_CANDIDATES_PER_KIND - 1))];
+        }
+        return thinned;
+    }
+
+    private static Monster strongest(Monster[] roster) {
+        Monster strongest = roster[0];
+        for (Monster monster : roster) {
+            if (monster.getHealth() > strongest.getHealth()) {
+                strongest = monster;
+            }
+        }
+        return strongest;
+    }
+
+    /**
+     * The chance of winning against one monster, and the expected health left when winning, by starting health.
+     */
+    static final class FightTable {
+        final double[] win;
+        final double[] healthLeft;
+
+        FightTable(int maxHealth) {
+            win = new double[maxHealth + 1];
+            healthLeft = new double[maxHealth + 1];
+        }
+    }
+
+    /**
+     * The expected state after exploring until an item is affordable.
+     */
+    private static final class Farming {
+        final ShopItem item;
+        final int explores;
+        final double survival;
+        final int health;
+        final int gold;
+        final byte[] defeated;
+
+        Farming(ShopItem item, int explores, double survival, int health, int gold, byte[] defeated) {
+            this.item = item;
+            this.explores = explores;
+            this.survival = survival;
+            this.health = health;
+            this.gold = gold;
+            this.defeated = defeated;
+        }
+
+        Farming buying(ShopItem item) {
+            return new Farming(item, explores, survival, health, gold, defeated);
+        }
+    }
+
+    /**
+     * A search state: the player's damage, health and gold, how likely each monster is to be defeated, and how
+     * many items the player has bought.
+     */
+    private static final class StateKey {
+        private final int damage;
+        private final int health;
+        private final int gold;
+        private final byte[] defeated;
+        private final int purchases;
+
+        StateKey(int damage, int health, int gold, byte[] defeated, int purchases) {
+            this.damage = damage;
+            this.health = health;
+            this.gold = gold;
+            this.defeated = defeated;
+            this.purchases = purchases;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof StateKey)) {
+                return false;
+            }
+            StateKey key = (StateKey) other;
+            return damage == key.damage && health == key.health && gold == key.gold && purchases == key.purchases
+                    && Arrays.equals(defeated, key.defeated);
+        }
+
+        @Override
+        public int hashCode() {
+            return (((damage * 31 + health) * 31 + gold) * 31 + purchases) * 31 + Arrays.hashCode(defeated);
+        }
+    }
+
+    /**
+     * One purchase in a plan, with everything after it.
+     */
+    private static final class Step {
+        static final Step READY = new Step(null, 0, 1, null, true);
+        static final Step STUCK = new Step(null, 0, 0, null, false);
+
+        final ShopItem item;
+        final int exploresBefore;
+        final double explores;
+        final double survival;
+        final Step next;
+        final boolean reachesTarget;
+
+        Step(ShopItem item, int exploresBefore, double survivalBefore, Step next) {
+            this(item, exploresBefore, survivalBefore, next, next.reachesTarget);
+        }
+
+        private Step(ShopItem item, int exploresBefore, double survivalBefore, Step next, boolean reachesTarget) {
+            this.item = item;
+            this.exploresBefore = exploresBefore;
+            this.explores = exploresBefore + (next == null ? 0 : next.explores);
+            this.survival = survivalBefore * (next == null ? 1 : next.survival);
+            this.next = next;
+            this.reachesTarget = reachesTarget;
+        }
+
+        double score() {
+            return reachesTarget ? explores / survival : Double.POSITIVE_INFINITY;
+        }
+    }
+
+    /**
+     * The best order of purchases found by the optimizer.
+     */
+    static final class Plan {
+        private final List<ShopItem> purchases = new ArrayList<>();
+        private final List<Integer> exploresBefore = new ArrayList<>();
+        private final double expectedExplores;
+        private final double survivalChance;
+        private final boolean reachesTarget;
+
+        private Plan(Step first) {
+            for (Step step = first; step != null && step.item != null; step = step.next) {
+                purchases.add(step.item);
+                exploresBefore.add(step.exploresBefore);
+            }
+            this.expectedExplores = first.explores;
+            this.survivalChance = first.survival;
+            this.reachesTarget = first.reachesTarget;
+        }
+
+        /**
+         * Returns the items to buy, in order.
+         *
+         * @return The items to buy.
+         */
+        public List<ShopItem> getPurchases() {
+            return Collections.unmodifiableList(purchases);
+        }
+
+        /**
+         * Returns the number of explores needed to reach the target when every explore is survived.
+         *
+         * @return The number of explores.
+         */
+        public double getExpectedExplores() {
+            return expectedExplores;
+        }
+
+        /**
+         * Returns the chance of surviving every explore in the plan.
+         *
+         * @return The survival chance.
+         */
+        public double getSurvivalChance() {
+            return survivalChance;
+        }
+
+        /**
+         * Returns the expected number of explores to reach the target, counting explores lost by starting over.
+         *
+         * @return The expected explores to the target, or infinity if the plan does not reach it.
+         */
+        public double getExpectedTimeToTarget() {
+            return reachesTarget ? expectedExplores / survivalChance : Double.POSITIVE_INFINITY;
+        }
+
+        /**
+         * Check if following the plan makes the player ready for the target monster.
+         *
+         * @return True if the plan reaches the target; otherwise, false.
+         */
+        public boolean reachesTarget() {
+            return reachesTarget;
+        }
+
+        @Override
+        public String toString() {
+            if (!reachesTarget) {
+                return "No plan within the purchase limit gets the player ready.";
+            }
+            StringBuilder text = new StringBuilder("Shopping plan:");
+            for (int i = 0; i < purchases.size(); i++) {
+                text.append('\n').append(i + 1).append(". Explore ").append(exploresBefore.get(i))
+                        .append(" times, then buy ").append(purchases.get(i).getName());
+            }
+            text.append(String.format("%nExplores: %.0f, survival chance: %.1f%%, expected explores with restarts: %.1f",
+                    expectedExplores, survivalChance * 100, getExpectedTimeToTarget()));
+            return text.toString();
+        }
+    }
+}
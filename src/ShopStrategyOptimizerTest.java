@@ -0,0 +1,73 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShopStrategyOptimizerTest {
+
+    @Test
+    public void testSolveFightMatchesSimulation() {
+        ShopStrategyOptimizer.FightTable table = ShopStrategyOptimizer.solveFight(20, 20, 100, 100);
+        Random random = new Random(7);
+        int battles = 200_000;
+        int wins = 0;
+        for (int i = 0; i < battles; i++) {
+            int player = 100;
+            int monster = 100;
+            while (player > 0 && monster > 0) {
+                monster -= random.nextInt(20);
+                player -= random.nextInt(20);
+            }
+            if (player > 0) {
+                wins++;
+            }
+        }
+        assertEquals((double) wins / battles, table.win[100], 0.01);
+    }
+
+    @Test
+    public void testHarmlessMonsterIsAlwaysBeaten() {
+        ShopStrategyOptimizer.FightTable table = ShopStrategyOptimizer.solveFight(2, 1, 5, 10);
+        assertEquals(1.0, table.win[1], 1e-9);
+        assertEquals(10.0, table.healthLeft[10], 1e-9);
+    }
+
+    @Test
+    public void testPlanForStandardGameReachesDragon() {
+        Shop shop = new Shop();
+        ShopStrategyOptimizer optimizer = new ShopStrategyOptimizer(shop.getWeapons(), shop.getArmors(),
+                ChatRPG.createMonsters());
+        ShopStrategyOptimizer.Plan plan = optimizer.optimize(new Player("Planner", 100, 20, 0, false, false));
+        assertTrue(plan.reachesTarget());
+        assertFalse(plan.getPurchases().isEmpty());
+        assertTrue(plan.getExpectedExplores() > 0);
+        assertTrue(plan.getSurvivalChance() > 0.5);
+    }
+
+    @Test
+    public void testReadyPlayerNeedsNothing() {
+        Shop shop = new Shop();
+        ShopStrategyOptimizer optimizer = new ShopStrategyOptimizer(shop.getWeapons(), shop.getArmors(),
+                ChatRPG.createMonsters());
+        ShopStrategyOptimizer.Plan plan = optimizer.optimize(new Player("Hero", 300, 60, 0, false, false));
+        assertTrue(plan.reachesTarget());
+        assertTrue(plan.getPurchases().isEmpty());
+        assertEquals(0.0, plan.getExpectedTimeToTarget(), 1e-9);
+    }
+
+    @Test
+    public void testLargeCatalogIsSolved() {
+        Random random = new Random(11);
+        ShopItem[] weapons = new ShopItem[300];
+        ShopItem[] armors = new ShopItem[300];
+        for (int i = 0; i < weapons.length; i++) {
+            int price = 10 + random.nextInt(200);
+            weapons[i] = new ShopItem("Weapon " + i, price, 20 + price / 4 + random.nextInt(20), 0);
+            armors[i] = new ShopItem("Armor " + i, price, 0, price / 3 + random.nextInt(15));
+        }
+        ShopStrategyOptimizer optimizer = new ShopStrategyOptimizer(weapons, armors, ChatRPG.createMonsters());
+        ShopStrategyOptimizer.Plan plan = optimizer.optimize(new Player("Planner", 100, 20, 0, false, false));
+        assertTrue(plan.reachesTarget());
+    }
+}
@@ -0,0 +1,94 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Measures how long a fresh JVM takes to show the game's prompts.
+ *
+ * Each run launches ChatRPG in a new process and records the time until the name prompt appears and, after
+ * pausing as long as a player takes to type their name, the time from entering it until the main menu
+ * appears. Any arguments are passed to the child JVM, which makes it easy to compare a plain launch with one
+ * that uses a class-data-sharing archive.
+ */
+public class StartupBenchmark {
+    private static final int RUNS = 10;
+    private static final long TYPING_DELAY_MILLIS = 500;
+    private static final String NAME_PROMPT = "Enter your name";
+    private static final String MAIN_MENU = "5. Quit game";
+
+    /**
+     * Main method to run the benchmark.
+     * @param args Options for the child JVM, such as -XX:SharedArchiveFile=out/chatrpg.jsa.
+     * @throws IOException If the game cannot be launched.
+     * @throws InterruptedException If the benchmark is interrupted while waiting for the game.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        List<Long> namePrompt = new ArrayList<>();
+        List<Long> mainMenu = new ArrayList<>();
+        for (int run = 0; run < RUNS; run++) {
+            long[] times = launch(Arrays.asList(args));
+            namePrompt.add(times[0]);
+            mainMenu.add(times[1]);
+        }
+        System.out.println("JVM options: " + (args.length == 0 ? "(none)" : String.join(" ", args)));
+        System.out.println("Time to name prompt: median " + median(namePrompt) + " ms, best " + Collections.min(namePrompt) + " ms");
+        System.out.println("Name to main menu:   median " + median(mainMenu) + " ms, best " + Collections.min(mainMenu) + " ms");
+    }
+
+    /**
+     * Launches the game once and plays up to the main menu.
+     *
+     * @param jvmOptions The options for the child JVM.
+     * @return The milliseconds until the name prompt, and from entering the name until the main menu.
+     */
+    private static long[] launch(List<String> jvmOptions) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmOptions);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("ChatRPG");
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        OutputStream input = process.getOutputStream();
+        try {
+            long namePrompt = awaitLine(output, NAME_PROMPT, start);
+            Thread.sleep(TYPING_DELAY_MILLIS);
+            long typed = System.nanoTime();
+            input.write("benchmark\n".getBytes(StandardCharsets.UTF_8));
+            input.flush();
+            long mainMenu = awaitLine(output, MAIN_MENU, typed);
+            input.write("5\n".getBytes(StandardCharsets.UTF_8));
+            input.flush();
+            process.waitFor();
+            return new long[]{namePrompt, mainMenu};
+        } finally {
+            process.destroy();
+        }
+    }
+
+    private static long awaitLine(BufferedReader output, String text, long since) throws IOException {
+        String line;
+        while ((line = output.readLine()) != null) {
+            if (line.contains(text)) {
+                return (System.nanoTime() - since) / 1_000_000;
+            }
+        }
+        throw new IOException("The game exited before printing \"" + text + "\".");
+    }
+
+    private static long median(List<Long> values) {
+        List<Long> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        return sorted.get(sorted.size() / 2);
+    }
+}